@@ -1,16 +1,126 @@
 package be.stijnhooft.portal.activity;
 
+import be.stijnhooft.portal.activity.filters.BranchFreeThresholdEvaluator;
+import be.stijnhooft.portal.activity.filters.ScalarThresholdEvaluator;
+import be.stijnhooft.portal.activity.filters.ThresholdEvaluator;
+import be.stijnhooft.portal.activity.remote.GzipRequestInterceptor;
+import be.stijnhooft.portal.activity.remote.TimedPoolingConnectionManager;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class ActivityConfiguration {
 
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder restTemplateBuilder) {
-        return restTemplateBuilder.build();
+    public RestTemplate restTemplate(RestTemplateBuilder restTemplateBuilder, HttpClient outboundHttpClient) {
+        return restTemplateBuilder
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(outboundHttpClient))
+                .build();
+    }
+
+    /**
+     * Connection pool shared by all calls to other services (weather, location, image).
+     */
+    @Bean
+    public TimedPoolingConnectionManager outboundConnectionManager(MeterRegistry meterRegistry,
+                                                                   @Value("${activity.http.pool.max-total:50}") int maxTotal,
+                                                                   @Value("${activity.http.pool.max-per-route:20}") int maxPerRoute,
+                                                                   @Value("${activity.http.pool.validate-after-inactivity-ms:2000}") int validateAfterInactivity) {
+        var connectionManager = new TimedPoolingConnectionManager(meterRegistry);
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        connectionManager.setValidateAfterInactivity(validateAfterInactivity);
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "outbound").bindTo(meterRegistry);
+        return connectionManager;
+    }
+
+    @Bean
+    public CloseableHttpClient outboundHttpClient(TimedPoolingConnectionManager outboundConnectionManager,
+                                                  @Value("${activity.http.connect-timeout-ms:2000}") int connectTimeout,
+                                                  @Value("${activity.http.read-timeout-ms:10000}") int readTimeout,
+                                                  @Value("${activity.http.pool.wait-timeout-ms:1000}") int poolWaitTimeout,
+                                                  @Value("${activity.http.keep-alive-ms:30000}") long keepAlive,
+                                                  @Value("${activity.http.compression.response:true}") boolean responseCompression,
+                                                  @Value("${activity.http.compression.request:false}") boolean requestCompression,
+                                                  @Value("${activity.http.compression.request-min-size:2048}") long requestCompressionMinSize) {
+        var requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setSocketTimeout(readTimeout)
+                .setConnectionRequestTimeout(poolWaitTimeout)
+                .build();
+
+        var builder = HttpClients.custom()
+                .setConnectionManager(outboundConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                // keep connections alive as long as the server allows, but never longer than configured
+                .setKeepAliveStrategy((response, context) -> {
+                    long keepAliveOfServer = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return keepAliveOfServer > 0 ? Math.min(keepAliveOfServer, keepAlive) : keepAlive;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAlive, TimeUnit.MILLISECONDS);
+
+        if (!responseCompression) {
+            builder.disableContentCompression();
+        }
+        if (requestCompression) {
+            // first, so that the content length is set for the compressed body
+            builder.addInterceptorFirst(new GzipRequestInterceptor(requestCompressionMinSize));
+        }
+
+        return builder.build();
+    }
+
+    @Bean
+    public ThresholdEvaluator thresholdEvaluator(@Value("${activity.filters.threshold-evaluator:branch-free}") String thresholdEvaluator) {
+        switch (thresholdEvaluator) {
+            case "branch-free":
+                return new BranchFreeThresholdEvaluator();
+            case "scalar":
+                return new ScalarThresholdEvaluator();
+            default:
+                throw new IllegalArgumentException("Unknown threshold evaluator " + thresholdEvaluator + ", expected branch-free or scalar");
+        }
+    }
+
+    /**
+     * Responses in CBOR, for clients that send Accept: application/cbor.
+     * Built with the object mapper builder of Spring Boot, so that it has the same configuration and modules as json.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        return new MappingJackson2CborHttpMessageConverter(objectMapperBuilder.createXmlMapper(false)
+                .factory(new CBORFactory())
+                .build());
+    }
+
+    /**
+     * Responses in Smile, for clients that send Accept: application/x-jackson-smile.
+     * Built with the object mapper builder of Spring Boot, so that it has the same configuration and modules as json.
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        return new MappingJackson2SmileHttpMessageConverter(objectMapperBuilder.createXmlMapper(false)
+                .factory(new SmileFactory())
+                .build());
     }
 
 }
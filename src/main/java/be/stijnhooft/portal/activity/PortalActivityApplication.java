@@ -1,12 +1,13 @@
 package be.stijnhooft.portal.activity;
 
+import be.stijnhooft.portal.activity.messaging.CatalogTopic;
 import be.stijnhooft.portal.activity.messaging.EventTopic;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.stream.annotation.EnableBinding;
 
 @SpringBootApplication
-@EnableBinding(EventTopic.class)
+@EnableBinding({EventTopic.class, CatalogTopic.class})
 public class PortalActivityApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,105 @@
+package be.stijnhooft.portal.activity.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of requests that are handled at the same time, with a limit that follows the observed latency.
+ *
+ * The latency without load is estimated as the lowest latency that has been observed lately.
+ * After every request, the limit is multiplied with the gradient (latency without load / observed latency),
+ * so that the limit goes down when requests start queueing and take longer.
+ * To find out whether more requests can be handled, the square root of the limit is added when the limit is being used.
+ * Changes of the limit are smoothed.
+ *
+ * The latency without load is measured anew every {@code probeInterval} requests, so that it can go up again
+ * when requests become slower for a reason that has nothing to do with load, for example a slower downstream service.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final int probeInterval;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+
+    // guarded by this
+    private long noLoadLatency = Long.MAX_VALUE;
+    private int samplesSinceProbe;
+
+    /**
+     * @param smoothing weight of a new limit, between 0 (the limit never changes) and 1 (no smoothing)
+     * @param probeInterval number of requests after which the latency without load is measured anew
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double smoothing, int probeInterval) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Expected 1 <= min limit <= initial limit <= max limit");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.probeInterval = probeInterval;
+    }
+
+    /**
+     * @return true when the request can be handled, and {@link #release(long)} or {@link #release()} has to be called afterwards.
+     * False when the limit has been reached.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a request that has been handled, and adapts the limit to its latency.
+     *
+     * @param latency in nanoseconds
+     */
+    public void release(long latency) {
+        int concurrency = inFlight.getAndDecrement();
+        update(Math.max(1, latency), concurrency);
+    }
+
+    /**
+     * Releases a request of which the latency says nothing about the load, for example because it failed.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void update(long latency, int concurrency) {
+        if (++samplesSinceProbe >= probeInterval) {
+            noLoadLatency = latency;
+            samplesSinceProbe = 0;
+        } else {
+            noLoadLatency = Math.min(noLoadLatency, latency);
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, (double) noLoadLatency / latency));
+
+        // only probe for a higher limit when the limit is being used, otherwise the latency says nothing about it
+        double queueSize = concurrency >= limit / 2 ? Math.sqrt(limit) : 0;
+
+        double newLimit = limit * gradient + queueSize;
+        newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+}
@@ -0,0 +1,109 @@
+package be.stijnhooft.portal.activity.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Admission control of searches: when more searches are being handled than the service can cope with,
+ * new searches are rejected immediately with a 503 and a Retry-After header, instead of queueing up and slowing down every search.
+ *
+ * Searches that call other services (weather or location) take a lot longer than searches that are handled in memory,
+ * so both get their own {@link AdaptiveConcurrencyLimiter}: a burst of weather-aware searches does not block the cheap ones.
+ */
+@Slf4j
+@Component
+public class SearchAdmissionFilter extends OncePerRequestFilter {
+
+    static final String SEARCH_PATH = "/activities/search/";
+    static final String BATCH_SEARCH_PATH = SEARCH_PATH + "batch";
+
+    private final SearchLimiter remoteSearchLimiter;
+    private final SearchLimiter localSearchLimiter;
+    private final long retryAfter;
+
+    public SearchAdmissionFilter(MeterRegistry meterRegistry,
+                                 @Value("${activity.search.admission.initial-limit:20}") int initialLimit,
+                                 @Value("${activity.search.admission.min-limit:4}") int minLimit,
+                                 @Value("${activity.search.admission.max-limit:200}") int maxLimit,
+                                 @Value("${activity.search.admission.smoothing:0.2}") double smoothing,
+                                 @Value("${activity.search.admission.probe-interval:500}") int probeInterval,
+                                 @Value("${activity.search.admission.retry-after-seconds:1}") long retryAfter) {
+        this.remoteSearchLimiter = new SearchLimiter("remote", new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, smoothing, probeInterval), meterRegistry);
+        this.localSearchLimiter = new SearchLimiter("local", new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, smoothing, probeInterval), meterRegistry);
+        this.retryAfter = retryAfter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + SEARCH_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        var searchLimiter = callsOtherServices(request) ? remoteSearchLimiter : localSearchLimiter;
+        if (!searchLimiter.limiter.tryAcquire()) {
+            log.debug("Rejected a {} search, limit of {} searches reached", searchLimiter.name, searchLimiter.limiter.getLimit());
+            searchLimiter.rejected.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many searches, try again later");
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean handled = false;
+        try {
+            filterChain.doFilter(request, response);
+            handled = true;
+        } finally {
+            if (handled) {
+                searchLimiter.limiter.release(System.nanoTime() - start);
+            } else {
+                searchLimiter.limiter.release();
+            }
+        }
+    }
+
+    private boolean callsOtherServices(HttpServletRequest request) {
+        // the criteria of a batch search are in its body, which is not read here, so a batch search is assumed to call other services
+        if (request.getRequestURI().equals(request.getContextPath() + BATCH_SEARCH_PATH)) {
+            return true;
+        }
+
+        var location = request.getParameter("location");
+        return "true".equalsIgnoreCase(request.getParameter("considerWeather"))
+                || (location != null && !location.isBlank());
+    }
+
+    private static class SearchLimiter {
+
+        private final String name;
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final Counter rejected;
+
+        SearchLimiter(String name, AdaptiveConcurrencyLimiter limiter, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.limiter = limiter;
+            this.rejected = meterRegistry.counter("activity.search.admission.rejected", "limiter", name);
+            Gauge.builder("activity.search.admission.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .tag("limiter", name)
+                    .register(meterRegistry);
+            Gauge.builder("activity.search.admission.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                    .tag("limiter", name)
+                    .register(meterRegistry);
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+package be.stijnhooft.portal.activity.catalog;
+
+import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.messaging.ActivitiesChangedEvent;
+import be.stijnhooft.portal.activity.repositories.ActivityRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory copy of all activities, so that a search does not need to read the whole collection from the database.
+ *
+ * The catalog is loaded on first use. Afterwards, it is kept up to date by applying changes one activity at a time:
+ * changes made by this instance arrive as {@link ActivitiesChangedEvent}, changes made by other instances arrive over the Catalog topic.
+ *
+ * Announcements of other instances can get lost. That's why the catalog is periodically reconciled with the database:
+ * the ids and versions of all activities are compared with the catalog, and the activities that differ are refreshed.
+ */
+@Slf4j
+@Component
+public class ActivityCatalog {
+
+    private final ActivityRepository activityRepository;
+
+    /** null when the catalog has not been loaded (yet) **/
+    private volatile CatalogSnapshot snapshot;
+
+    public ActivityCatalog(ActivityRepository activityRepository) {
+        this.activityRepository = activityRepository;
+    }
+
+    public CatalogSnapshot snapshot() {
+        var currentSnapshot = snapshot;
+        if (currentSnapshot != null) {
+            return currentSnapshot;
+        }
+
+        synchronized (this) {
+            if (snapshot == null) {
+                log.info("Loading the activity catalog");
+                snapshot = CatalogSnapshot.of(activityRepository.findAll());
+            }
+            return snapshot;
+        }
+    }
+
+    public Collection<Activity> findAll() {
+        return snapshot().getActivities();
+    }
+
+    /**
+     * Forgets all activities. They will be read again from the database when the catalog is used again.
+     */
+    public synchronized void invalidate() {
+        snapshot = null;
+    }
+
+    /**
+     * Reads the provided activities from the database, and updates or removes them in the catalog.
+     * When no ids are provided, it is unknown what has changed, and the whole catalog is invalidated.
+     */
+    public void refresh(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            invalidate();
+            return;
+        }
+
+        for (String id : ids) {
+            var activity = activityRepository.findById(id);
+            apply(id, activity);
+        }
+    }
+
+    /**
+     * Compares the ids and versions in the database with the catalog, and refreshes the activities that have been
+     * added, changed or removed without this instance being told about it.
+     */
+    @Scheduled(fixedDelayString = "${activity.catalog.reconcile-ms:300000}", initialDelayString = "${activity.catalog.reconcile-ms:300000}")
+    public void reconcile() {
+        var currentSnapshot = snapshot;
+        if (currentSnapshot == null) {
+            // not loaded yet, nothing to reconcile
+            return;
+        }
+
+        var versionsInDatabase = new HashMap<String, Integer>();
+        activityRepository.findVersionsBy()
+                .forEach(activityVersion -> versionsInDatabase.put(activityVersion.getId(), activityVersion.getVersion()));
+
+        var idsInCatalog = currentSnapshot.getActivities().stream()
+                .map(Activity::getId)
+                .collect(Collectors.toSet());
+
+        var differentIds = new HashSet<String>();
+        versionsInDatabase.forEach((id, version) -> {
+            var activityInCatalog = currentSnapshot.findById(id);
+            if (activityInCatalog.isEmpty() || !Objects.equals(version, activityInCatalog.get().getVersion())) {
+                differentIds.add(id);
+            }
+        });
+        idsInCatalog.stream()
+                .filter(id -> !versionsInDatabase.containsKey(id))
+                .forEach(differentIds::add);
+
+        if (!differentIds.isEmpty()) {
+            log.warn("The activity catalog missed changes of activities {}, refreshing them", differentIds);
+            refresh(differentIds);
+        }
+    }
+
+    @EventListener
+    public void onActivitiesChanged(ActivitiesChangedEvent event) {
+        refresh(event.getIds());
+    }
+
+    private synchronized void apply(String id, Optional<Activity> activity) {
+        if (snapshot == null) {
+            // not loaded yet, the change will be picked up when loading
+            return;
+        }
+
+        if (activity.isEmpty()) {
+            snapshot = snapshot.without(id);
+        } else if (isNewer(activity.get(), snapshot.findById(id))) {
+            snapshot = snapshot.with(activity.get());
+        }
+    }
+
+    private boolean isNewer(Activity activity, Optional<Activity> activityInCatalog) {
+        return activityInCatalog
+                .map(Activity::getVersion)
+                .map(versionInCatalog -> activity.getVersion() == null || activity.getVersion() >= versionInCatalog)
+                .orElse(true);
+    }
+
+}
@@ -0,0 +1,183 @@
+package be.stijnhooft.portal.activity.catalog;
+
+import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.domain.Weather;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-optimized, column-oriented copy of a list of activities, used by the filters.
+ *
+ * Every activity is identified by its ordinal (its position in the list).
+ * A set of activities is a {@link BitSet} of ordinals.
+ * Numbers are stored in primitive arrays, with {@link #NONE} when a value is missing.
+ * Values that are shared by many activities (locations, labels, weather conditions) are dictionary-encoded:
+ * the column contains an id, that refers to an entry in the dictionary.
+ *
+ * The original activities are only needed to return the result of a search.
+ */
+public class ActivityColumns {
+
+    /** sentinel for a missing value **/
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private final List<Activity> activities;
+
+    private final int[] minNumberOfParticipants;
+    private final int[] maxNumberOfParticipants;
+
+    private final int[] locationIds;
+    private final LocationDictionary locations = new LocationDictionary();
+    private final LiteralLocationIndex literalLocationIndex = new LiteralLocationIndex();
+
+    private final int[] weatherProfileIds;
+    private final WeatherProfiles weatherProfiles;
+    private volatile LocationWeatherIndex locationWeatherIndex;
+
+    private final int[][] labelIds;
+    private final Map<String, Integer> labelDictionary = new HashMap<>();
+
+    private ActivityColumns(List<Activity> activities) {
+        int size = activities.size();
+        this.activities = activities;
+        this.minNumberOfParticipants = new int[size];
+        this.maxNumberOfParticipants = new int[size];
+        this.locationIds = new int[size];
+        this.weatherProfileIds = new int[size];
+        this.labelIds = new int[size][];
+
+        var weatherDictionary = new HashMap<Weather, Integer>();
+        var distinctWeather = new ArrayList<Weather>();
+
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            var activity = activities.get(ordinal);
+
+            minNumberOfParticipants[ordinal] = activity.getMinNumberOfParticipants();
+            maxNumberOfParticipants[ordinal] = activity.getMaxNumberOfParticipants() == null ? NONE : activity.getMaxNumberOfParticipants();
+
+            if (activity.getLocation() == null) {
+                locationIds[ordinal] = NONE;
+            } else {
+                locationIds[ordinal] = locations.intern(activity.getLocation());
+                literalLocationIndex.add(ordinal, activity.getLocation());
+            }
+
+            if (activity.getWeather() == null) {
+                weatherProfileIds[ordinal] = NONE;
+            } else {
+                weatherProfileIds[ordinal] = weatherDictionary.computeIfAbsent(activity.getWeather(), weather -> {
+                    distinctWeather.add(weather);
+                    return distinctWeather.size() - 1;
+                });
+            }
+
+            var labels = activity.getLabels() == null ? List.<String>of() : activity.getLabels();
+            labelIds[ordinal] = labels.stream()
+                    .mapToInt(label -> labelDictionary.computeIfAbsent(label, newLabel -> labelDictionary.size()))
+                    .toArray();
+        }
+
+        this.weatherProfiles = WeatherProfiles.of(distinctWeather);
+    }
+
+    public static ActivityColumns of(List<Activity> activities) {
+        return new ActivityColumns(activities);
+    }
+
+    public int size() {
+        return activities.size();
+    }
+
+    public Activity activity(int ordinal) {
+        return activities.get(ordinal);
+    }
+
+    /**
+     * @return the activities with the provided ordinals, in the order of the ordinals
+     */
+    public List<Activity> activities(BitSet ordinals) {
+        var result = new ArrayList<Activity>(ordinals.cardinality());
+        for (int ordinal = ordinals.nextSetBit(0); ordinal >= 0; ordinal = ordinals.nextSetBit(ordinal + 1)) {
+            result.add(activities.get(ordinal));
+        }
+        return result;
+    }
+
+    /**
+     * @return a new bitset containing the ordinals of all activities
+     */
+    public BitSet all() {
+        var ordinals = new BitSet(activities.size());
+        ordinals.set(0, activities.size());
+        return ordinals;
+    }
+
+    public int[] minNumberOfParticipants() {
+        return minNumberOfParticipants;
+    }
+
+    /** {@link #NONE} when there is no maximum **/
+    public int[] maxNumberOfParticipants() {
+        return maxNumberOfParticipants;
+    }
+
+    /** {@link #NONE} when the activity has no location **/
+    public int[] locationIds() {
+        return locationIds;
+    }
+
+    /**
+     * @return the key of the location, in the form that is used to talk to remote services
+     */
+    public String location(int locationId) {
+        return locations.key(locationId);
+    }
+
+    public int numberOfLocations() {
+        return locations.size();
+    }
+
+    public LiteralLocationIndex literalLocationIndex() {
+        return literalLocationIndex;
+    }
+
+    /** {@link #NONE} when the activity has no weather conditions **/
+    public int[] weatherProfileIds() {
+        return weatherProfileIds;
+    }
+
+    public WeatherProfiles weatherProfiles() {
+        return weatherProfiles;
+    }
+
+    /**
+     * Built on first use, because only searches that consider the weather need it.
+     */
+    public LocationWeatherIndex locationWeatherIndex() {
+        var index = locationWeatherIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = locationWeatherIndex;
+                if (index == null) {
+                    index = new LocationWeatherIndex(this);
+                    locationWeatherIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    public int[][] labelIds() {
+        return labelIds;
+    }
+
+    /** {@link #NONE} when no activity has this label **/
+    public int labelId(String label) {
+        return labelDictionary.getOrDefault(label, NONE);
+    }
+
+}
@@ -0,0 +1,99 @@
+package be.stijnhooft.portal.activity.catalog;
+
+import be.stijnhooft.portal.activity.domain.Activity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable view on all activities at a certain point in time.
+ * Every activity has an ordinal: its position in the snapshot.
+ * A change to the catalog results in a new snapshot; searches that are still running keep using the old one.
+ */
+public class CatalogSnapshot {
+
+    private final List<Activity> activities;
+    private final Map<String, Integer> ordinalsById;
+    private volatile ActivityColumns columns;
+
+    private CatalogSnapshot(List<Activity> activities) {
+        this.activities = Collections.unmodifiableList(activities);
+        this.ordinalsById = new HashMap<>();
+        for (int ordinal = 0; ordinal < activities.size(); ordinal++) {
+            var id = activities.get(ordinal).getId();
+            if (id != null) {
+                ordinalsById.put(id, ordinal);
+            }
+        }
+    }
+
+    public static CatalogSnapshot of(List<Activity> activities) {
+        return new CatalogSnapshot(new ArrayList<>(activities));
+    }
+
+    public List<Activity> getActivities() {
+        return activities;
+    }
+
+    public int size() {
+        return activities.size();
+    }
+
+    public Activity get(int ordinal) {
+        return activities.get(ordinal);
+    }
+
+    /**
+     * @return the column-oriented representation of this snapshot, built on first use. Ordinals are shared with the snapshot.
+     */
+    public ActivityColumns columns() {
+        var result = columns;
+        if (result == null) {
+            synchronized (this) {
+                result = columns;
+                if (result == null) {
+                    result = ActivityColumns.of(activities);
+                    columns = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    public Optional<Activity> findById(String id) {
+        return Optional.ofNullable(ordinalsById.get(id))
+                .map(activities::get);
+    }
+
+    /**
+     * @return a new snapshot in which the activity has been added, or replaced when an activity with the same id already exists
+     */
+    CatalogSnapshot with(Activity activity) {
+        var newActivities = new ArrayList<>(activities);
+        var ordinal = ordinalsById.get(activity.getId());
+        if (ordinal == null) {
+            newActivities.add(activity);
+        } else {
+            newActivities.set(ordinal, activity);
+        }
+        return new CatalogSnapshot(newActivities);
+    }
+
+    /**
+     * @return a new snapshot without the activity with the provided id
+     */
+    CatalogSnapshot without(String id) {
+        var ordinal = ordinalsById.get(id);
+        if (ordinal == null) {
+            return this;
+        }
+        var newActivities = new ArrayList<>(activities);
+        newActivities.remove((int) ordinal);
+        return new CatalogSnapshot(newActivities);
+    }
+
+}
@@ -0,0 +1,54 @@
+package be.stijnhooft.portal.activity.catalog;
+
+import be.stijnhooft.portal.activity.domain.Location;
+import be.stijnhooft.portal.activity.utils.LocationUtil;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finds the activities of which the city, province or country is literally what the user typed.
+ * Every level of the location has its own hash index, from the normalized name to the ordinals of the activities,
+ * so that "Belgie" matches activities in "België".
+ *
+ * Not thread-safe: an index is filled once, and only read afterwards.
+ */
+public class LiteralLocationIndex {
+
+    private final Map<String, BitSet> cities = new HashMap<>();
+    private final Map<String, BitSet> provinces = new HashMap<>();
+    private final Map<String, BitSet> countries = new HashMap<>();
+
+    void add(int ordinal, Location location) {
+        add(cities, location.getCity(), ordinal);
+        add(provinces, location.getProvince(), ordinal);
+        add(countries, location.getCountry(), ordinal);
+    }
+
+    /**
+     * @return a new bitset with the ordinals of the activities of which the city, province or country matches the user input
+     */
+    public BitSet find(String userInput) {
+        var name = LocationUtil.normalize(userInput);
+        var result = new BitSet();
+        or(result, cities.get(name));
+        or(result, provinces.get(name));
+        or(result, countries.get(name));
+        return result;
+    }
+
+    private void add(Map<String, BitSet> level, String name, int ordinal) {
+        var normalizedName = LocationUtil.normalize(name);
+        if (!normalizedName.isEmpty()) {
+            level.computeIfAbsent(normalizedName, newName -> new BitSet()).set(ordinal);
+        }
+    }
+
+    private void or(BitSet result, BitSet ordinals) {
+        if (ordinals != null) {
+            result.or(ordinals);
+        }
+    }
+
+}
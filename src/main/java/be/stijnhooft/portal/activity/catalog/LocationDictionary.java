@@ -0,0 +1,43 @@
+package be.stijnhooft.portal.activity.catalog;
+
+import be.stijnhooft.portal.activity.domain.Location;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gives every distinct location an integer id.
+ * Locations are compared on their normalized key, so that locations that only differ in case, accents or whitespace share one id.
+ * Of every id, the first original form is kept: that is the key that is used to talk to remote services and to cache their answers.
+ *
+ * Not thread-safe: a dictionary is filled once, and only read afterwards.
+ */
+public class LocationDictionary {
+
+    private final Map<String, Integer> idsByNormalizedKey = new HashMap<>();
+    private final List<String> keys = new ArrayList<>();
+
+    /**
+     * @return the id of the location, which is assigned when the location is not known yet
+     */
+    public int intern(Location location) {
+        return idsByNormalizedKey.computeIfAbsent(location.normalizedKey(), normalizedKey -> {
+            keys.add(location.toString());
+            return keys.size() - 1;
+        });
+    }
+
+    /**
+     * @return the key of the location with the provided id, in its original form
+     */
+    public String key(int id) {
+        return keys.get(id);
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+}
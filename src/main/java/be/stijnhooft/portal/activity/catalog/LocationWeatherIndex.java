@@ -0,0 +1,70 @@
+package be.stijnhooft.portal.activity.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per location, a {@link WeatherThresholdIndex} over the distinct weather conditions ("profiles") of the activities at that location.
+ *
+ * Built once per {@link ActivityColumns}, so that a search only queries the indexes of the locations of its candidates,
+ * instead of sorting the thresholds of those locations again.
+ */
+public class LocationWeatherIndex {
+
+    private final WeatherThresholdIndex[] indexPerLocation;
+    private final int[] positions;
+
+    LocationWeatherIndex(ActivityColumns columns) {
+        var locationIds = columns.locationIds();
+        var weatherProfileIds = columns.weatherProfileIds();
+
+        var profileIdsPerLocation = new ArrayList<List<Integer>>(columns.numberOfLocations());
+        var positionsPerLocation = new ArrayList<Map<Integer, Integer>>(columns.numberOfLocations());
+        for (int locationId = 0; locationId < columns.numberOfLocations(); locationId++) {
+            profileIdsPerLocation.add(new ArrayList<>());
+            positionsPerLocation.add(new HashMap<>());
+        }
+
+        this.positions = new int[columns.size()];
+        Arrays.fill(positions, ActivityColumns.NONE);
+        for (int ordinal = 0; ordinal < columns.size(); ordinal++) {
+            int locationId = locationIds[ordinal];
+            int profileId = weatherProfileIds[ordinal];
+            if (locationId != ActivityColumns.NONE && profileId != ActivityColumns.NONE) {
+                var profileIds = profileIdsPerLocation.get(locationId);
+                positions[ordinal] = positionsPerLocation.get(locationId).computeIfAbsent(profileId, newProfileId -> {
+                    profileIds.add(newProfileId);
+                    return profileIds.size() - 1;
+                });
+            }
+        }
+
+        this.indexPerLocation = new WeatherThresholdIndex[columns.numberOfLocations()];
+        for (int locationId = 0; locationId < indexPerLocation.length; locationId++) {
+            var profileIds = profileIdsPerLocation.get(locationId);
+            if (!profileIds.isEmpty()) {
+                indexPerLocation[locationId] = new WeatherThresholdIndex(columns.weatherProfiles(),
+                        profileIds.stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+    }
+
+    /**
+     * @return the index over the profiles of the activities at the location, null when none of them has weather conditions
+     */
+    public WeatherThresholdIndex of(int locationId) {
+        return indexPerLocation[locationId];
+    }
+
+    /**
+     * @return per ordinal, the position of the profile of the activity in the index of its location.
+     * {@link ActivityColumns#NONE} when the activity has no location or no weather conditions.
+     */
+    public int[] positions() {
+        return positions;
+    }
+
+}
@@ -0,0 +1,85 @@
+package be.stijnhooft.portal.activity.catalog;
+
+import be.stijnhooft.portal.activity.domain.Weather;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Distinct weather conditions ("profiles"), stored column per threshold.
+ * A profile is identified by its position. A missing threshold is stored as {@link ActivityColumns#NONE}.
+ */
+public class WeatherProfiles {
+
+    private final int size;
+    private final int[] minTemperature;
+    private final int[] maxTemperature;
+    private final int[] maxCloudiness;
+    private final int[] maxRain;
+    private final int[] maxSnow;
+    private final int[] maxFog;
+    private final int[] minWind;
+    private final int[] maxWind;
+
+    private WeatherProfiles(List<Weather> profiles) {
+        this.size = profiles.size();
+        this.minTemperature = column(profiles, Weather::getMinTemperature);
+        this.maxTemperature = column(profiles, Weather::getMaxTemperature);
+        this.maxCloudiness = column(profiles, Weather::getMaxCloudiness);
+        this.maxRain = column(profiles, Weather::getMaxRain);
+        this.maxSnow = column(profiles, Weather::getMaxSnow);
+        this.maxFog = column(profiles, Weather::getMaxFog);
+        this.minWind = column(profiles, Weather::getMinWind);
+        this.maxWind = column(profiles, Weather::getMaxWind);
+    }
+
+    public static WeatherProfiles of(List<Weather> profiles) {
+        return new WeatherProfiles(profiles);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int[] minTemperature() {
+        return minTemperature;
+    }
+
+    public int[] maxTemperature() {
+        return maxTemperature;
+    }
+
+    public int[] maxCloudiness() {
+        return maxCloudiness;
+    }
+
+    public int[] maxRain() {
+        return maxRain;
+    }
+
+    public int[] maxSnow() {
+        return maxSnow;
+    }
+
+    public int[] maxFog() {
+        return maxFog;
+    }
+
+    public int[] minWind() {
+        return minWind;
+    }
+
+    public int[] maxWind() {
+        return maxWind;
+    }
+
+    private static int[] column(List<Weather> profiles, Function<Weather, Integer> threshold) {
+        var column = new int[profiles.size()];
+        for (int profile = 0; profile < profiles.size(); profile++) {
+            var value = threshold.apply(profiles.get(profile));
+            column[profile] = value == null ? ActivityColumns.NONE : value;
+        }
+        return column;
+    }
+
+}
@@ -0,0 +1,197 @@
+package be.stijnhooft.portal.activity.catalog;
+
+import be.stijnhooft.portal.activity.domain.Weather;
+import be.stijnhooft.portal.model.weather.Forecast;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * Index over the thresholds of a list of weather conditions ("profiles").
+ *
+ * Instead of checking every profile against a forecast, the index answers the question
+ * "which profiles are compatible with this forecast?".
+ * Every threshold is kept in a sorted array, so that the compatible profiles of one threshold are a range of that array.
+ * Profiles without a certain threshold are compatible with every forecast, for that threshold.
+ *
+ * Profiles are identified by their position in the index.
+ */
+public class WeatherThresholdIndex {
+
+    private final int size;
+
+    private final Threshold minTemperature;
+    private final Threshold maxTemperature;
+    private final Threshold minWind;
+    private final Threshold maxWind;
+    private final Threshold maxCloudiness;
+    private final Threshold maxRain;
+    private final Threshold maxSnow;
+    private final Threshold maxFog;
+
+    /**
+     * @param profiles all known profiles
+     * @param profileIds the profiles to index. The position of a profile in the index is its position in this array.
+     */
+    public WeatherThresholdIndex(WeatherProfiles profiles, int[] profileIds) {
+        this.size = profileIds.length;
+        this.minTemperature = Threshold.minimum(profiles.minTemperature(), profileIds);
+        this.maxTemperature = Threshold.maximum(profiles.maxTemperature(), profileIds);
+        this.minWind = Threshold.minimum(profiles.minWind(), profileIds);
+        this.maxWind = Threshold.maximum(profiles.maxWind(), profileIds);
+        this.maxCloudiness = Threshold.maximum(profiles.maxCloudiness(), profileIds);
+        this.maxRain = Threshold.maximum(profiles.maxRain(), profileIds);
+        this.maxSnow = Threshold.maximum(profiles.maxSnow(), profileIds);
+        this.maxFog = Threshold.maximum(profiles.maxFog(), profileIds);
+    }
+
+    /**
+     * Indexes the provided profiles. The position of a profile in the index is its position in the list.
+     */
+    public WeatherThresholdIndex(List<Weather> profiles) {
+        this(WeatherProfiles.of(profiles), IntStream.range(0, profiles.size()).toArray());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the positions of the profiles for which the weather of the forecast is ok, or unknown
+     */
+    public BitSet compatibleWith(Forecast forecast) {
+        var compatible = new BitSet(size);
+        compatible.set(0, size);
+
+        // temperature
+        if (forecast.getTemperature() != null) {
+            Double actualTemperature = Optional.ofNullable(forecast.getTemperature().getFeelsLike()).orElse(forecast.getTemperature().getMaxTemperature());
+            if (actualTemperature != null) {
+                compatible.and(minTemperature.compatibleWith(actualTemperature));
+                compatible.and(maxTemperature.compatibleWith(actualTemperature));
+            }
+        }
+
+        // wind
+        if (forecast.getWind() != null) {
+            double beaufort = forecast.getWind().getBeaufort();
+            compatible.and(minWind.compatibleWith(beaufort));
+            compatible.and(maxWind.compatibleWith(beaufort));
+        }
+
+        // cloudiness
+        if (forecast.getCloudiness() != null) {
+            compatible.and(maxCloudiness.compatibleWith(forecast.getCloudiness()));
+        }
+
+        // precipitation
+        var precipitation = forecast.getPrecipitation();
+        if (precipitation != null && precipitation.getType() != null) {
+            var expectedPrecipitation = ((double) precipitation.getIntensity() / 100) * ((double) precipitation.getProbability() / 100) * 100;
+            switch (precipitation.getType()) {
+                case FOG -> compatible.and(maxFog.compatibleWith(expectedPrecipitation));
+                case RAIN -> compatible.and(maxRain.compatibleWith(expectedPrecipitation));
+                case SNOW -> compatible.and(maxSnow.compatibleWith(expectedPrecipitation));
+                default -> {
+                    // do nothing
+                }
+            }
+        }
+
+        return compatible;
+    }
+
+    /**
+     * All values of one threshold, sorted ascending.
+     */
+    private static class Threshold {
+
+        /** true when a profile accepts values above its threshold, false when it accepts values below its threshold **/
+        private final boolean minimum;
+        private final int[] sortedValues;
+        private final int[] sortedPositions;
+        private final BitSet withoutThreshold;
+
+        private Threshold(boolean minimum, int[] column, int[] profileIds) {
+            this.minimum = minimum;
+            this.withoutThreshold = new BitSet(profileIds.length);
+
+            this.sortedPositions = IntStream.range(0, profileIds.length)
+                    .filter(position -> column[profileIds[position]] != ActivityColumns.NONE)
+                    .boxed()
+                    .sorted(Comparator.comparingInt(position -> column[profileIds[position]]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            this.sortedValues = Arrays.stream(sortedPositions)
+                    .map(position -> column[profileIds[position]])
+                    .toArray();
+
+            for (int position = 0; position < profileIds.length; position++) {
+                if (column[profileIds[position]] == ActivityColumns.NONE) {
+                    withoutThreshold.set(position);
+                }
+            }
+        }
+
+        static Threshold minimum(int[] column, int[] profileIds) {
+            return new Threshold(true, column, profileIds);
+        }
+
+        static Threshold maximum(int[] column, int[] profileIds) {
+            return new Threshold(false, column, profileIds);
+        }
+
+        BitSet compatibleWith(double value) {
+            var compatible = (BitSet) withoutThreshold.clone();
+            if (minimum) {
+                // compatible when threshold <= value: a prefix of the sorted values
+                int end = firstIndexAbove(value);
+                for (int i = 0; i < end; i++) {
+                    compatible.set(sortedPositions[i]);
+                }
+            } else {
+                // compatible when threshold >= value: a suffix of the sorted values
+                int start = firstIndexAtLeast(value);
+                for (int i = start; i < sortedValues.length; i++) {
+                    compatible.set(sortedPositions[i]);
+                }
+            }
+            return compatible;
+        }
+
+        /** index of the first value that is strictly greater than the provided value **/
+        private int firstIndexAbove(double value) {
+            int low = 0;
+            int high = sortedValues.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (sortedValues[middle] <= value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /** index of the first value that is greater than or equal to the provided value **/
+        private int firstIndexAtLeast(double value) {
+            int low = 0;
+            int high = sortedValues.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (sortedValues[middle] < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+}
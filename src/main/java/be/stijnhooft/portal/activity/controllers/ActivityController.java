@@ -1,52 +1,88 @@
 package be.stijnhooft.portal.activity.controllers;
 
 import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.domain.BulkImportResult;
+import be.stijnhooft.portal.activity.domain.FoundActivity;
+import be.stijnhooft.portal.activity.domain.SearchQuery;
+import be.stijnhooft.portal.activity.domain.SearchResult;
 import be.stijnhooft.portal.activity.factory.PageRequestFactory;
+import be.stijnhooft.portal.activity.factory.SearchParameterFactory;
 import be.stijnhooft.portal.activity.factory.SortFactory;
-import be.stijnhooft.portal.activity.searchparameters.*;
+import be.stijnhooft.portal.activity.services.ActivityBulkService;
 import be.stijnhooft.portal.activity.services.ActivityService;
 import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
-import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/activities")
 public class ActivityController {
 
+    /** header of a search response, with the conditions that could not be checked for some activities **/
+    public static final String DEGRADED_FILTERS_HEADER = "X-Degraded-Filters";
+
     private final ActivityService activityService;
+    private final ActivityBulkService activityBulkService;
 
-    public ActivityController(ActivityService activityService) {
+    public ActivityController(ActivityService activityService, ActivityBulkService activityBulkService) {
         this.activityService = activityService;
+        this.activityBulkService = activityBulkService;
     }
 
     @GetMapping("/search/")
-    public Collection<Activity> find(@RequestParam(value = "location", required = false) String location,
+    public ResponseEntity<List<FoundActivity>> find(@RequestParam(value = "location", required = false) String location,
                                      @RequestParam(value = "radius", required = false) Integer locationRadiusInKm,
                                      @RequestParam(value = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
                                      @RequestParam(value = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
                                      @RequestParam(value = "numberOfParticipants", required = false) Integer numberOfParticipants,
                                      @RequestParam(value = "considerWeather", required = false) Boolean considerWeather,
-                                     @RequestParam(value = "labels", required = false) List<String> labels) {
-        var searchParameters = Stream.of(
-                LocationSearchParameter.create(location, locationRadiusInKm),
-                DateSearchParameter.create(startDate, endDate),
-                ParticipantsSearchParameter.create(numberOfParticipants),
-                WeatherSearchParameter.create(considerWeather, startDate, endDate),
-                LabelSearchParameter.create(labels)
-        )
-                .flatMap(Optional::stream)
+                                     @RequestParam(value = "labels", required = false) List<String> labels,
+                                     @RequestParam(value = "deadline", required = false) Long deadlineInMs) {
+        var searchParameters = SearchParameterFactory.create(location, locationRadiusInKm, startDate, endDate,
+                numberOfParticipants, considerWeather, labels);
+
+        var searchResult = activityService.find(searchParameters, deadlineInMs);
+        var response = ResponseEntity.ok();
+        if (searchResult.isDegraded()) {
+            response.header(DEGRADED_FILTERS_HEADER, String.join(",", searchResult.getDegradedFilters()));
+        }
+        return response.body(searchResult.getActivities());
+    }
+
+    /**
+     * Executes multiple searches at once, for example the same search for the next four weekends.
+     * The searches share one pass over the activities and one request per other service.
+     *
+     * @return the activities found by every search, in the order of the searches
+     */
+    @PostMapping("/search/batch")
+    public ResponseEntity<List<List<FoundActivity>>> find(@RequestBody List<SearchQuery> searchQueries,
+                                                          @RequestParam(value = "deadline", required = false) Long deadlineInMs) {
+        var searchParametersPerQuery = searchQueries.stream()
+                .map(SearchParameterFactory::create)
                 .collect(Collectors.toList());
 
-        return activityService.find(searchParameters);
+        var searchResults = activityService.find(searchParametersPerQuery, deadlineInMs);
+
+        var degradedFilters = new TreeSet<String>();
+        searchResults.forEach(searchResult -> degradedFilters.addAll(searchResult.getDegradedFilters()));
+        var response = ResponseEntity.ok();
+        if (!degradedFilters.isEmpty()) {
+            response.header(DEGRADED_FILTERS_HEADER, String.join(",", degradedFilters));
+        }
+        return response.body(searchResults.stream()
+                .map(SearchResult::getActivities)
+                .collect(Collectors.toList()));
     }
 
     @GetMapping
@@ -63,6 +99,16 @@ public class ActivityController {
         return activityService.find(pageRequest, filter);
     }
 
+    @GetMapping(value = "/export", produces = ActivityBulkService.NDJSON)
+    public StreamingResponseBody export() {
+        return activityBulkService::export;
+    }
+
+    @PostMapping(value = "/import", consumes = ActivityBulkService.NDJSON)
+    public BulkImportResult importActivities(InputStream inputStream) throws IOException {
+        return activityBulkService.importActivities(inputStream);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Activity> findById(@PathVariable("id") String id) {
         return activityService.findById(id)
@@ -0,0 +1,35 @@
+package be.stijnhooft.portal.activity.controllers;
+
+import be.stijnhooft.portal.activity.domain.WeekendSuggestion;
+import be.stijnhooft.portal.activity.services.WeekendSuggestionService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/suggestions")
+public class SuggestionController {
+
+    private final WeekendSuggestionService weekendSuggestionService;
+
+    public SuggestionController(WeekendSuggestionService weekendSuggestionService) {
+        this.weekendSuggestionService = weekendSuggestionService;
+    }
+
+    /**
+     * Serves the precomputed suggestions for next weekend.
+     * When no location is given, the first configured region is used.
+     */
+    @GetMapping("/weekend")
+    public ResponseEntity<WeekendSuggestion> findForTheWeekend(@RequestParam(value = "location", required = false) String location) {
+        if (location == null) {
+            location = weekendSuggestionService.getLocations().get(0);
+        }
+        return weekendSuggestionService.find(location)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+}
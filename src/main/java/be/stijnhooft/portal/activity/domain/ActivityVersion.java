@@ -0,0 +1,12 @@
+package be.stijnhooft.portal.activity.domain;
+
+/**
+ * Projection of an activity on its id and version.
+ */
+public interface ActivityVersion {
+
+    String getId();
+
+    Integer getVersion();
+
+}
@@ -0,0 +1,29 @@
+package be.stijnhooft.portal.activity.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkImportResult {
+
+    /** number of activities that have been inserted or replaced **/
+    private long imported;
+
+    /** number of activities that have not been written, because they already exist or have been changed in the meantime **/
+    private long conflicts;
+
+    /** number of activities that have not been written, because they cannot be imported (for example: they contain a new photo) **/
+    private long rejected;
+
+    public BulkImportResult(long imported, long conflicts) {
+        this(imported, conflicts, 0);
+    }
+
+    public BulkImportResult add(BulkImportResult other) {
+        return new BulkImportResult(imported + other.imported, conflicts + other.conflicts, rejected + other.rejected);
+    }
+
+}
@@ -0,0 +1,27 @@
+package be.stijnhooft.portal.activity.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+/**
+ * An activity that has been found by a search.
+ * In json, it has the fields of the activity, and the conditions that could not be checked.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FoundActivity {
+
+    @JsonUnwrapped
+    private Activity activity;
+
+    /** conditions that could not be checked for this activity, for example "weather" or "distance" **/
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private Set<String> unknown;
+
+}
@@ -1,14 +1,12 @@
 package be.stijnhooft.portal.activity.domain;
 
+import be.stijnhooft.portal.activity.utils.LocationUtil;
 import lombok.*;
 
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.StringJoiner;
 
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
-@Builder
 public class Location {
 
     private String street;
@@ -17,20 +15,94 @@ public class Location {
     private String province;
     private String country;
 
+    /** cached result of toString, cleared when a part of the location changes. Not persisted, nor serialized. **/
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private transient String key;
+
+    /** cached result of normalizedKey, cleared when a part of the location changes. Not persisted, nor serialized. **/
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private transient String normalizedKey;
+
+    @Builder
+    public Location(String street, String number, String city, String province, String country) {
+        this.street = street;
+        this.number = number;
+        this.city = city;
+        this.province = province;
+        this.country = country;
+    }
+
+    /**
+     * @return true when the city, province or country is the user input, ignoring case, accents and whitespace
+     */
     public boolean literalMatch(@NonNull String userInput) {
-        return userInput.equals(city)
-                || userInput.equals(province)
-                || userInput.equals(country);
+        var normalizedUserInput = LocationUtil.normalize(userInput);
+        return normalizedUserInput.equals(LocationUtil.normalize(city))
+                || normalizedUserInput.equals(LocationUtil.normalize(province))
+                || normalizedUserInput.equals(LocationUtil.normalize(country));
     }
 
+    /**
+     * @return the parts of the location that are filled in, separated by ", ". Used as key when talking to remote services.
+     */
     public String toString() {
-        return Stream.of(Stream.ofNullable(street),
-                Stream.ofNullable(number),
-                Stream.ofNullable(city),
-                Stream.ofNullable(province),
-                Stream.ofNullable(country))
-                .reduce(Stream::concat)
-                .orElseGet(Stream::empty)
-                .collect(Collectors.joining(", "));
+        var result = key;
+        if (result == null) {
+            var joiner = new StringJoiner(", ");
+            for (String part : new String[] {street, number, city, province, country}) {
+                if (part != null) {
+                    joiner.add(part);
+                }
+            }
+            result = joiner.toString();
+            key = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return the key of this location, normalized for matching with {@link LocationUtil#normalize(String)}
+     */
+    public String normalizedKey() {
+        var result = normalizedKey;
+        if (result == null) {
+            result = LocationUtil.normalize(toString());
+            normalizedKey = result;
+        }
+        return result;
+    }
+
+    public void setStreet(String street) {
+        this.street = street;
+        clearKeys();
+    }
+
+    public void setNumber(String number) {
+        this.number = number;
+        clearKeys();
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+        clearKeys();
+    }
+
+    public void setProvince(String province) {
+        this.province = province;
+        clearKeys();
+    }
+
+    public void setCountry(String country) {
+        this.country = country;
+        clearKeys();
+    }
+
+    private void clearKeys() {
+        key = null;
+        normalizedKey = null;
     }
 }
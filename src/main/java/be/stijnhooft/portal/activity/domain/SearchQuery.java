@@ -0,0 +1,35 @@
+package be.stijnhooft.portal.activity.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * One search of a batch search, with the same criteria as the parameters of a single search.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchQuery {
+
+    private String location;
+
+    /** radius in km around the location **/
+    private Integer radius;
+
+    private LocalDate startDate;
+
+    private LocalDate endDate;
+
+    private Integer numberOfParticipants;
+
+    private Boolean considerWeather;
+
+    private List<String> labels;
+
+}
@@ -0,0 +1,24 @@
+package be.stijnhooft.portal.activity.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Set;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchResult {
+
+    private List<FoundActivity> activities;
+
+    /** conditions that could not be checked for some activities, because a lookup failed or took too long **/
+    private Set<String> degradedFilters;
+
+    public boolean isDegraded() {
+        return !degradedFilters.isEmpty();
+    }
+
+}
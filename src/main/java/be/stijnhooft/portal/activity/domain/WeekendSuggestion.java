@@ -0,0 +1,40 @@
+package be.stijnhooft.portal.activity.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of a weekend search for one region, stored so that it can be served without searching again.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document("weekendSuggestion")
+public class WeekendSuggestion {
+
+    /** the location of the region **/
+    @Id
+    private String location;
+
+    private int locationRadius;
+
+    private LocalDate startDate;
+
+    private LocalDate endDate;
+
+    private LocalDateTime computedAt;
+
+    @Builder.Default
+    private List<Activity> activities = new ArrayList<>();
+
+}
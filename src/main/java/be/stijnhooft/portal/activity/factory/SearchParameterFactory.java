@@ -0,0 +1,35 @@
+package be.stijnhooft.portal.activity.factory;
+
+import be.stijnhooft.portal.activity.domain.SearchQuery;
+import be.stijnhooft.portal.activity.searchparameters.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class SearchParameterFactory {
+
+    /**
+     * @return a search parameter for every criterion that has been filled in
+     */
+    public static List<SearchParameter> create(String location, Integer locationRadiusInKm, LocalDate startDate, LocalDate endDate,
+                                               Integer numberOfParticipants, Boolean considerWeather, List<String> labels) {
+        return Stream.of(
+                LocationSearchParameter.create(location, locationRadiusInKm),
+                DateSearchParameter.create(startDate, endDate),
+                ParticipantsSearchParameter.create(numberOfParticipants),
+                WeatherSearchParameter.create(considerWeather, startDate, endDate),
+                LabelSearchParameter.create(labels)
+        )
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+    }
+
+    public static List<SearchParameter> create(SearchQuery searchQuery) {
+        return create(searchQuery.getLocation(), searchQuery.getRadius(), searchQuery.getStartDate(), searchQuery.getEndDate(),
+                searchQuery.getNumberOfParticipants(), searchQuery.getConsiderWeather(), searchQuery.getLabels());
+    }
+
+}
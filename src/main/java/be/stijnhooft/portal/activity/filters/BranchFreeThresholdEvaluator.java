@@ -0,0 +1,66 @@
+package be.stijnhooft.portal.activity.filters;
+
+import be.stijnhooft.portal.activity.catalog.ActivityColumns;
+
+/**
+ * Evaluates the thresholds without branches, filling the mask one 64-bit word at a time.
+ *
+ * A comparison is turned into a bit by looking at the sign of a subtraction in long arithmetic, which cannot overflow for int operands.
+ * Without data dependent branches, the outcome of the comparisons does not influence the speed of the loop,
+ * and the inner loop has a fixed length of 64, which the JIT can unroll.
+ */
+public class BranchFreeThresholdEvaluator implements ThresholdEvaluator {
+
+    @Override
+    public long[] atMost(int[] thresholds, int value) {
+        var mask = new long[ThresholdEvaluator.wordsFor(thresholds.length)];
+        int fullWords = thresholds.length >>> 6;
+        for (int word = 0; word < fullWords; word++) {
+            long bits = 0;
+            int offset = word << 6;
+            for (int bit = 0; bit < 64; bit++) {
+                int threshold = thresholds[offset + bit];
+                // threshold <= value <=> value - threshold >= 0
+                long passes = (((long) value - threshold) >>> 63) ^ 1L;
+                bits |= (passes | isNone(threshold)) << bit;
+            }
+            mask[word] = bits;
+        }
+        for (int i = fullWords << 6; i < thresholds.length; i++) {
+            long passes = (((long) value - thresholds[i]) >>> 63) ^ 1L;
+            mask[fullWords] |= (passes | isNone(thresholds[i])) << i;
+        }
+        return mask;
+    }
+
+    @Override
+    public long[] atLeast(int[] thresholds, int value) {
+        var mask = new long[ThresholdEvaluator.wordsFor(thresholds.length)];
+        int fullWords = thresholds.length >>> 6;
+        for (int word = 0; word < fullWords; word++) {
+            long bits = 0;
+            int offset = word << 6;
+            for (int bit = 0; bit < 64; bit++) {
+                int threshold = thresholds[offset + bit];
+                // threshold >= value <=> threshold - value >= 0
+                long passes = (((long) threshold - value) >>> 63) ^ 1L;
+                bits |= (passes | isNone(threshold)) << bit;
+            }
+            mask[word] = bits;
+        }
+        for (int i = fullWords << 6; i < thresholds.length; i++) {
+            long passes = (((long) thresholds[i] - value) >>> 63) ^ 1L;
+            mask[fullWords] |= (passes | isNone(thresholds[i])) << i;
+        }
+        return mask;
+    }
+
+    /**
+     * @return 1 when the threshold is missing, 0 otherwise
+     */
+    private static long isNone(int threshold) {
+        // only NONE ^ NONE is 0, and only 0 - 1 is negative when read as an unsigned int
+        return (Integer.toUnsignedLong(threshold ^ ActivityColumns.NONE) - 1) >>> 63;
+    }
+
+}
@@ -1,12 +1,33 @@
 package be.stijnhooft.portal.activity.filters;
 
+import be.stijnhooft.portal.activity.catalog.ActivityColumns;
 import be.stijnhooft.portal.activity.domain.Activity;
 import be.stijnhooft.portal.activity.searchparameters.SearchParameter;
 
+import java.util.BitSet;
+
 public interface ItemFilter {
 
     boolean apply(Activity activity, SearchParameter searchParameter);
 
+    /**
+     * Column-oriented variant of {@link #apply(Activity, SearchParameter)}.
+     * By default, every candidate is materialized and checked one by one.
+     * Filters that can work on the columns directly should override this method.
+     *
+     * @param candidates ordinals of the activities to check, not modified
+     * @return a new bitset with the ordinals of the candidates that match
+     */
+    default BitSet apply(ActivityColumns columns, BitSet candidates, SearchParameter searchParameter) {
+        var result = new BitSet(columns.size());
+        for (int ordinal = candidates.nextSetBit(0); ordinal >= 0; ordinal = candidates.nextSetBit(ordinal + 1)) {
+            if (apply(columns.activity(ordinal), searchParameter)) {
+                result.set(ordinal);
+            }
+        }
+        return result;
+    }
+
     boolean supports(SearchParameter searchParameter);
 
     /**
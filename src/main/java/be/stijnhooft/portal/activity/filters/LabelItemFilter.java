@@ -1,10 +1,14 @@
 package be.stijnhooft.portal.activity.filters;
 
+import be.stijnhooft.portal.activity.catalog.ActivityColumns;
 import be.stijnhooft.portal.activity.domain.Activity;
 import be.stijnhooft.portal.activity.searchparameters.LabelSearchParameter;
 import be.stijnhooft.portal.activity.searchparameters.SearchParameter;
 import org.springframework.stereotype.Component;
 
+import java.util.BitSet;
+import java.util.Objects;
+
 @Component
 public class LabelItemFilter implements ItemFilter {
 
@@ -23,6 +27,40 @@ public class LabelItemFilter implements ItemFilter {
                 .anyMatch(label -> searchParameter.getLabelsToLookFor().contains(label));
     }
 
+    @Override
+    public BitSet apply(ActivityColumns columns, BitSet candidates, SearchParameter searchParameter) {
+        // translate the labels to look for to label ids once, labels that no activity has are left out
+        var labelIdsToLookFor = ((LabelSearchParameter) searchParameter).getLabelsToLookFor()
+                .stream()
+                .filter(Objects::nonNull)
+                .mapToInt(columns::labelId)
+                .filter(labelId -> labelId != ActivityColumns.NONE)
+                .toArray();
+        var result = new BitSet(columns.size());
+        if (labelIdsToLookFor.length == 0) {
+            return result;
+        }
+
+        var labelIds = columns.labelIds();
+        for (int ordinal = candidates.nextSetBit(0); ordinal >= 0; ordinal = candidates.nextSetBit(ordinal + 1)) {
+            if (containsAny(labelIds[ordinal], labelIdsToLookFor)) {
+                result.set(ordinal);
+            }
+        }
+        return result;
+    }
+
+    private boolean containsAny(int[] labelIds, int[] labelIdsToLookFor) {
+        for (int labelId : labelIds) {
+            for (int labelIdToLookFor : labelIdsToLookFor) {
+                if (labelId == labelIdToLookFor) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     @Override
     public boolean supports(SearchParameter searchParameter) {
         return searchParameter.getClass().isAssignableFrom(LabelSearchParameter.class);
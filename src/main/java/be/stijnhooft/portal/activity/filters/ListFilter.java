@@ -1,14 +1,60 @@
 package be.stijnhooft.portal.activity.filters;
 
+import be.stijnhooft.portal.activity.catalog.ActivityColumns;
 import be.stijnhooft.portal.activity.domain.Activity;
 import be.stijnhooft.portal.activity.searchparameters.SearchParameter;
+import be.stijnhooft.portal.activity.services.SearchContext;
 
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 public interface ListFilter {
 
     Collection<Activity> apply(Collection<Activity> activities, SearchParameter searchParameter);
 
+    /**
+     * Column-oriented variant of {@link #apply(Collection, SearchParameter)}.
+     * By default, the candidates are materialized, filtered as a collection and mapped back to their ordinals.
+     * Filters that can work on the columns directly should override this method.
+     *
+     * @param candidates ordinals of the activities to check, not modified
+     * @return a new bitset with the ordinals of the candidates that match
+     */
+    default BitSet apply(ActivityColumns columns, BitSet candidates, SearchParameter searchParameter) {
+        var ordinals = new IdentityHashMap<Activity, Integer>(candidates.cardinality());
+        for (int ordinal = candidates.nextSetBit(0); ordinal >= 0; ordinal = candidates.nextSetBit(ordinal + 1)) {
+            ordinals.put(columns.activity(ordinal), ordinal);
+        }
+
+        var result = new BitSet(columns.size());
+        for (Activity activity : apply(columns.activities(candidates), searchParameter)) {
+            result.set(ordinals.get(activity));
+        }
+        return result;
+    }
+
+    /**
+     * Variant of {@link #apply(ActivityColumns, BitSet, SearchParameter)} that takes the deadline of the search into account.
+     * Filters that call other services should override this method, do their lookups through {@link SearchContext#within}
+     * and, when a lookup fails or takes too long, mark the conditions that they could not check in the context.
+     */
+    default BitSet apply(ActivityColumns columns, BitSet candidates, SearchParameter searchParameter, SearchContext searchContext) {
+        return apply(columns, candidates, searchParameter);
+    }
+
+    /**
+     * Called once before multiple searches are executed together, so that the filter can do the lookups of all searches
+     * in one go and store their results with {@link SearchContext#addPrefetched}.
+     * When applied to one of these searches, the filter should use the prefetched results before doing a lookup itself.
+     * By default, nothing is prefetched.
+     *
+     * @param candidatesPerParameter per search parameter that this filter supports, the ordinals of the activities to which it will be applied
+     */
+    default void prefetch(ActivityColumns columns, Map<SearchParameter, BitSet> candidatesPerParameter, SearchContext searchContext) {
+    }
+
     boolean supports(SearchParameter searchParameter);
 
     /**
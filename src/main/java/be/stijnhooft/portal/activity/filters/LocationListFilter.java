@@ -1,17 +1,27 @@
 package be.stijnhooft.portal.activity.filters;
 
+import be.stijnhooft.portal.activity.catalog.ActivityColumns;
 import be.stijnhooft.portal.activity.domain.Activity;
 import be.stijnhooft.portal.activity.searchparameters.LocationSearchParameter;
 import be.stijnhooft.portal.activity.searchparameters.SearchParameter;
 import be.stijnhooft.portal.activity.services.LocationService;
+import be.stijnhooft.portal.activity.services.LocationService.DistanceKey;
+import be.stijnhooft.portal.activity.services.SearchContext;
 import be.stijnhooft.portal.model.location.Distance;
 import lombok.AllArgsConstructor;
-import org.apache.commons.collections4.CollectionUtils;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.stream.Collectors;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
+@Slf4j
 @Component
 @AllArgsConstructor
 public class LocationListFilter implements ListFilter {
@@ -19,42 +29,109 @@ public class LocationListFilter implements ListFilter {
     private final LocationService locationService;
 
     public Collection<Activity> apply(Collection<Activity> activities, LocationSearchParameter searchParameter) {
+        var columns = ActivityColumns.of(new ArrayList<>(activities));
+        return columns.activities(apply(columns, columns.all(), searchParameter, SearchContext.unbounded()));
+    }
+
+    public BitSet apply(ActivityColumns columns, BitSet candidates, LocationSearchParameter searchParameter, SearchContext searchContext) {
         String userInput = searchParameter.getName().trim();
         int maxRadius = searchParameter.getRadiusInKm();
+        var locationIds = columns.locationIds();
 
-        var activitiesWithLocation = activities.stream()
-                .filter(activity -> activity.getLocation() != null)
-                .filter(activity -> activity.getLocation().toString().trim().length() > 0)
-                .collect(Collectors.toList());
+        // first look for literal matches, with one lookup in the index
+        var activitiesWithLiteralMatch = columns.literalLocationIndex().find(userInput);
+        activitiesWithLiteralMatch.and(candidates);
 
-        // first look for literal matches
-        var activitiesWithLiteralMatch = activitiesWithLocation.stream()
-                .filter(activity -> activity.getLocation().literalMatch(userInput))
-                .collect(Collectors.toList());
+        // the other activities with a location need a distance calculation
+        var activitiesToCalculateDistanceFor = new BitSet(columns.size());
+        var locationsToCompareWithUserInput = new HashSet<String>();
+        for (int ordinal = candidates.nextSetBit(0); ordinal >= 0; ordinal = candidates.nextSetBit(ordinal + 1)) {
+            if (needsDistance(columns, ordinal, activitiesWithLiteralMatch)) {
+                activitiesToCalculateDistanceFor.set(ordinal);
+                locationsToCompareWithUserInput.add(columns.location(locationIds[ordinal]));
+            }
+        }
 
-        if (activitiesWithLocation.size() == activitiesWithLiteralMatch.size()) {
+        if (activitiesToCalculateDistanceFor.isEmpty()) {
             return activitiesWithLiteralMatch;
         }
 
+        // use the distances that have been prefetched for a batch of searches, when available
+        var distancesPerLocation = new HashMap<String, Distance>();
+        var locationsToFetch = new HashSet<String>();
+        for (String location : locationsToCompareWithUserInput) {
+            searchContext.<Optional<Distance>>findPrefetched(new DistanceKey(userInput, location))
+                    .ifPresentOrElse(distance -> distance.ifPresent(knownDistance -> distancesPerLocation.put(location, knownDistance)),
+                            () -> locationsToFetch.add(location));
+        }
+
         // For those without literal, go ask the location service for their distance.
         // Instead of firing multiple rest queries to the location service, every query needs to get bundled into 1 request
         // and the response needs to get matched back to the corresponding activities.
-        var activitiesToCalculateDistanceFor = CollectionUtils.disjunction(activitiesWithLocation, activitiesWithLiteralMatch);
-        var locationsToCompareWithUserInput = activitiesToCalculateDistanceFor.stream().map(activity -> activity.getLocation().toString()).collect(Collectors.toSet());
-        var distances = locationService.findDistance(userInput, locationsToCompareWithUserInput);
-        var activitiesWithinDistance = activitiesToCalculateDistanceFor.stream()
-                .filter(activity -> isDistanceInMaxRadius(maxRadius, distances, activity))
-                .collect(Collectors.toList());
-
-        return CollectionUtils.union(activitiesWithLiteralMatch, activitiesWithinDistance);
+        Set<String> unknownLocations = Set.of();
+        if (!locationsToFetch.isEmpty()) {
+            try {
+                var distances = searchContext.within(() -> locationService.findDistance(userInput, locationsToFetch));
+                for (Distance distance : distances) {
+                    distancesPerLocation.putIfAbsent(distance.getLocation2Query(), distance);
+                }
+            } catch (RuntimeException e) {
+                // the distance to these locations is unknown, see SearchContext#keepIfUnknownAccepted
+                log.warn("Could not retrieve distances to {}, distance is unknown: {}", userInput, e.getMessage());
+                unknownLocations = locationsToFetch;
+            }
+        }
+
+        var result = activitiesWithLiteralMatch;
+        var distanceUnknown = new BitSet(columns.size());
+        for (int ordinal = activitiesToCalculateDistanceFor.nextSetBit(0); ordinal >= 0; ordinal = activitiesToCalculateDistanceFor.nextSetBit(ordinal + 1)) {
+            var location = columns.location(locationIds[ordinal]);
+            var distance = distancesPerLocation.get(location);
+            if (distance != null && maxRadius >= distance.getKm()) {
+                result.set(ordinal);
+            } else if (unknownLocations.contains(location)) {
+                distanceUnknown.set(ordinal);
+            }
+        }
+        searchContext.keepIfUnknownAccepted(SearchContext.DISTANCE, result, distanceUnknown);
+        return result;
     }
 
-    private Boolean isDistanceInMaxRadius(int maxRadius, Collection<Distance> distances, Activity activity) {
-        return distances.stream()
-                .filter(distance -> distance.getLocation2Query().equals(activity.getLocation().toString()))
-                .findFirst()
-                .map(distance -> maxRadius >= distance.getKm())
-                .orElse(false);
+    /**
+     * Asks the distances of all searches in one request.
+     * Distances that the location service could not calculate are stored as empty, so that the searches do not ask them again.
+     */
+    @Override
+    public void prefetch(ActivityColumns columns, Map<SearchParameter, BitSet> candidatesPerParameter, SearchContext searchContext) {
+        var keys = new HashSet<DistanceKey>();
+        candidatesPerParameter.forEach((searchParameter, candidates) -> {
+            String userInput = ((LocationSearchParameter) searchParameter).getName().trim();
+            var activitiesWithLiteralMatch = columns.literalLocationIndex().find(userInput);
+            for (int ordinal = candidates.nextSetBit(0); ordinal >= 0; ordinal = candidates.nextSetBit(ordinal + 1)) {
+                if (needsDistance(columns, ordinal, activitiesWithLiteralMatch)) {
+                    keys.add(new DistanceKey(userInput, columns.location(columns.locationIds()[ordinal])));
+                }
+            }
+        });
+
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        try {
+            var distancesPerKey = searchContext.within(() -> locationService.findDistances(keys));
+            keys.forEach(key -> searchContext.addPrefetched(key, Optional.ofNullable(distancesPerKey.get(key))));
+        } catch (RuntimeException e) {
+            // every search asks its own distances, and degrades on its own when that fails too
+            log.warn("Could not prefetch distances: {}", e.getMessage());
+        }
+    }
+
+    private boolean needsDistance(ActivityColumns columns, int ordinal, BitSet activitiesWithLiteralMatch) {
+        int locationId = columns.locationIds()[ordinal];
+        return locationId != ActivityColumns.NONE
+                && !activitiesWithLiteralMatch.get(ordinal)
+                && !columns.location(locationId).isBlank();
     }
 
     @Override
@@ -62,6 +139,16 @@ public class LocationListFilter implements ListFilter {
         return apply(activities, (LocationSearchParameter) searchParameter);
     }
 
+    @Override
+    public BitSet apply(ActivityColumns columns, BitSet candidates, SearchParameter searchParameter) {
+        return apply(columns, candidates, (LocationSearchParameter) searchParameter, SearchContext.unbounded());
+    }
+
+    @Override
+    public BitSet apply(ActivityColumns columns, BitSet candidates, SearchParameter searchParameter, SearchContext searchContext) {
+        return apply(columns, candidates, (LocationSearchParameter) searchParameter, searchContext);
+    }
+
     @Override
     public boolean supports(SearchParameter searchParameter) {
         return searchParameter.getClass().isAssignableFrom(LocationSearchParameter.class);
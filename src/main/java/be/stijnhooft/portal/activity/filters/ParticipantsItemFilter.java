@@ -1,13 +1,20 @@
 package be.stijnhooft.portal.activity.filters;
 
+import be.stijnhooft.portal.activity.catalog.ActivityColumns;
 import be.stijnhooft.portal.activity.domain.Activity;
 import be.stijnhooft.portal.activity.searchparameters.ParticipantsSearchParameter;
 import be.stijnhooft.portal.activity.searchparameters.SearchParameter;
+import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import java.util.BitSet;
+
 @Component
+@AllArgsConstructor
 public class ParticipantsItemFilter implements ItemFilter {
 
+    private final ThresholdEvaluator thresholdEvaluator;
+
     @Override
     public boolean apply(Activity activity, SearchParameter searchParameter) {
         return apply(activity, (ParticipantsSearchParameter) searchParameter);
@@ -18,6 +25,19 @@ public class ParticipantsItemFilter implements ItemFilter {
                 && (activity.getMaxNumberOfParticipants() == null || searchParameter.getNumberOfParticipants() <= activity.getMaxNumberOfParticipants());
     }
 
+    /**
+     * Evaluates the participant limits of the whole catalog at once, with the configured {@link ThresholdEvaluator}.
+     */
+    @Override
+    public BitSet apply(ActivityColumns columns, BitSet candidates, SearchParameter searchParameter) {
+        int numberOfParticipants = ((ParticipantsSearchParameter) searchParameter).getNumberOfParticipants();
+
+        var passes = BitSet.valueOf(thresholdEvaluator.atMost(columns.minNumberOfParticipants(), numberOfParticipants));
+        passes.and(BitSet.valueOf(thresholdEvaluator.atLeast(columns.maxNumberOfParticipants(), numberOfParticipants)));
+        passes.and(candidates);
+        return passes;
+    }
+
     @Override
     public boolean supports(SearchParameter searchParameter) {
         return searchParameter.getClass().isAssignableFrom(ParticipantsSearchParameter.class);
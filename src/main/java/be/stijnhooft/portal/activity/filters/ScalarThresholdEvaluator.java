@@ -0,0 +1,32 @@
+package be.stijnhooft.portal.activity.filters;
+
+import be.stijnhooft.portal.activity.catalog.ActivityColumns;
+
+/**
+ * Straightforward evaluation: one comparison, and one branch, per threshold.
+ */
+public class ScalarThresholdEvaluator implements ThresholdEvaluator {
+
+    @Override
+    public long[] atMost(int[] thresholds, int value) {
+        var mask = new long[ThresholdEvaluator.wordsFor(thresholds.length)];
+        for (int i = 0; i < thresholds.length; i++) {
+            if (thresholds[i] == ActivityColumns.NONE || thresholds[i] <= value) {
+                mask[i >>> 6] |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    @Override
+    public long[] atLeast(int[] thresholds, int value) {
+        var mask = new long[ThresholdEvaluator.wordsFor(thresholds.length)];
+        for (int i = 0; i < thresholds.length; i++) {
+            if (thresholds[i] == ActivityColumns.NONE || thresholds[i] >= value) {
+                mask[i >>> 6] |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+}
@@ -0,0 +1,28 @@
+package be.stijnhooft.portal.activity.filters;
+
+import be.stijnhooft.portal.activity.catalog.ActivityColumns;
+
+/**
+ * Compares a column of thresholds with one value, for all activities of the column at once.
+ *
+ * The result is a bitmask in the format of {@link java.util.BitSet#toLongArray()}:
+ * bit i is set when the threshold at ordinal i passes.
+ * A threshold that is {@link ActivityColumns#NONE} always passes.
+ */
+public interface ThresholdEvaluator {
+
+    /**
+     * @return a bitmask of the thresholds that are lower than or equal to the value, or missing
+     */
+    long[] atMost(int[] thresholds, int value);
+
+    /**
+     * @return a bitmask of the thresholds that are greater than or equal to the value, or missing
+     */
+    long[] atLeast(int[] thresholds, int value);
+
+    static int wordsFor(int size) {
+        return (size + 63) >>> 6;
+    }
+
+}
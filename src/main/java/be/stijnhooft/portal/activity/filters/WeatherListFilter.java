@@ -1,25 +1,36 @@
 package be.stijnhooft.portal.activity.filters;
 
+import be.stijnhooft.portal.activity.catalog.ActivityColumns;
+import be.stijnhooft.portal.activity.catalog.WeatherThresholdIndex;
 import be.stijnhooft.portal.activity.domain.Activity;
 import be.stijnhooft.portal.activity.searchparameters.SearchParameter;
 import be.stijnhooft.portal.activity.searchparameters.WeatherSearchParameter;
+import be.stijnhooft.portal.activity.services.ForecastStore;
+import be.stijnhooft.portal.activity.services.SearchContext;
 import be.stijnhooft.portal.activity.services.WeatherService;
+import be.stijnhooft.portal.activity.services.WeatherService.ForecastKey;
 import be.stijnhooft.portal.model.weather.Forecast;
 import lombok.AllArgsConstructor;
-import org.apache.commons.collections4.CollectionUtils;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Component
 @AllArgsConstructor
 public class WeatherListFilter implements ListFilter {
 
     private final WeatherService weatherService;
+    private final ForecastStore forecastStore;
 
     @Override
     public Collection<Activity> apply(Collection<Activity> activities, SearchParameter searchParameter) {
@@ -27,107 +38,166 @@ public class WeatherListFilter implements ListFilter {
     }
 
     public Collection<Activity> apply(Collection<Activity> activities, WeatherSearchParameter weatherSearchParameter) {
-        var activitiesThatCanBeChecked = activities.stream()
-                .filter(activity -> activity.getLocation() != null)
-                .filter(activity -> activity.getWeather() != null)
-                .collect(Collectors.toList());
-
-        if (activitiesThatCanBeChecked.isEmpty()) {
-            return new ArrayList<>(activities);
-        }
-
-        var forecasts = findForecasts(weatherSearchParameter, activitiesThatCanBeChecked);
-
-        var filteredActivities = activitiesThatCanBeChecked.stream()
-                .filter(activity -> isTheWeatherOkOrUnknown(activity, forecasts))
-                .collect(Collectors.toList());
-
-        var activitiesThatCannotBeChecked = CollectionUtils.disjunction(activities, activitiesThatCanBeChecked);
-        return CollectionUtils.union(filteredActivities, activitiesThatCannotBeChecked);
+        var columns = ActivityColumns.of(new ArrayList<>(activities));
+        return columns.activities(apply(columns, columns.all(), weatherSearchParameter, SearchContext.unbounded()));
     }
 
-    private Collection<Forecast> findForecasts(WeatherSearchParameter weatherSearchParameter, List<Activity> activitiesWithWeatherConditionsAndLocation) {
-        var locations = activitiesWithWeatherConditionsAndLocation.stream()
-                .map(activity -> activity.getLocation().toString())
-                .collect(Collectors.toSet());
-
-        var startDate = weatherSearchParameter.getStartDate();
-        var endDate = weatherSearchParameter.getEndDate();
-
-        return weatherService.findForecasts(locations, startDate, endDate);
+    @Override
+    public BitSet apply(ActivityColumns columns, BitSet candidates, SearchParameter searchParameter) {
+        return apply(columns, candidates, (WeatherSearchParameter) searchParameter, SearchContext.unbounded());
     }
 
-    private boolean isTheWeatherOkOrUnknown(Activity activity, Collection<Forecast> allForecasts) {
-        var forecastsOfActivity = allForecasts.stream()
-                .filter(forecast -> forecast.getLocation().equals(activity.getLocation().toString()))
-                .collect(Collectors.toList());
-
-        return forecastsOfActivity.stream()
-                .allMatch(forecast -> isTheWeatherOkOrUnknown(activity, forecast));
+    @Override
+    public BitSet apply(ActivityColumns columns, BitSet candidates, SearchParameter searchParameter, SearchContext searchContext) {
+        return apply(columns, candidates, (WeatherSearchParameter) searchParameter, searchContext);
     }
 
-    private boolean isTheWeatherOkOrUnknown(Activity activity, Forecast forecast) {
-        var weatherConditions = activity.getWeather();
-
-        // temperature
-        if (forecast.getTemperature() != null) {
-            double actualTemperature = Optional.ofNullable(forecast.getTemperature().getFeelsLike()).orElse(forecast.getTemperature().getMaxTemperature());
-            if (weatherConditions.getMinTemperature() != null && weatherConditions.getMinTemperature() > actualTemperature) {
-                return false;
-            }
-            if (weatherConditions.getMaxTemperature() != null && weatherConditions.getMaxTemperature() < actualTemperature) {
-                return false;
+    public BitSet apply(ActivityColumns columns, BitSet candidates, WeatherSearchParameter weatherSearchParameter, SearchContext searchContext) {
+        var locationIds = columns.locationIds();
+
+        // Activities are grouped per location, and within a location per distinct weather conditions ("profile").
+        // For every location, the catalog keeps an index over the thresholds of its profiles, which tells which profiles
+        // are compatible with a forecast, so that every profile is evaluated only once, however many activities share it.
+        var locationWeatherIndex = columns.locationWeatherIndex();
+        var positionOfActivity = locationWeatherIndex.positions();
+        var checkable = new BitSet(columns.size());
+        var locationIdsToCheck = new BitSet(columns.numberOfLocations());
+        for (int ordinal = candidates.nextSetBit(0); ordinal >= 0; ordinal = candidates.nextSetBit(ordinal + 1)) {
+            if (positionOfActivity[ordinal] != ActivityColumns.NONE) {
+                checkable.set(ordinal);
+                locationIdsToCheck.set(locationIds[ordinal]);
             }
         }
 
-        // wind
-        if (forecast.getWind() != null && weatherConditions.getMinWind() != null && forecast.getWind().getBeaufort() < weatherConditions.getMinWind()) {
-            return false;
+        // activities of which the weather cannot be checked are kept
+        var result = (BitSet) candidates.clone();
+        if (checkable.isEmpty()) {
+            return result;
         }
-        if (forecast.getWind() != null && weatherConditions.getMaxWind() != null && forecast.getWind().getBeaufort() > weatherConditions.getMaxWind()) {
-            return false;
+
+        var locations = locationIdsToCheck.stream()
+                .mapToObj(columns::location)
+                .collect(Collectors.toSet());
+        var unknownLocations = new HashSet<String>();
+        var forecastsByLocation = findForecasts(weatherSearchParameter, locations, searchContext, unknownLocations);
+
+        var compatibleProfilesPerLocation = new HashMap<Integer, BitSet>();
+        locationIdsToCheck.stream().forEach(locationId -> {
+            var forecasts = forecastsByLocation.getOrDefault(columns.location(locationId), List.of());
+            compatibleProfilesPerLocation.put(locationId, compatibleProfiles(locationWeatherIndex.of(locationId), forecasts));
+        });
+
+        var weatherUnknown = new BitSet(columns.size());
+        for (int ordinal = checkable.nextSetBit(0); ordinal >= 0; ordinal = checkable.nextSetBit(ordinal + 1)) {
+            if (unknownLocations.contains(columns.location(locationIds[ordinal]))) {
+                // without forecasts, every profile would be compatible
+                weatherUnknown.set(ordinal);
+            } else if (!compatibleProfilesPerLocation.get(locationIds[ordinal]).get(positionOfActivity[ordinal])) {
+                result.clear(ordinal);
+            }
         }
+        searchContext.keepIfUnknownAccepted(SearchContext.WEATHER, result, weatherUnknown);
+        return result;
+    }
 
-        // cloudiness
-        if (forecast.getCloudiness() != null && weatherConditions.getMaxCloudiness() != null && forecast.getCloudiness() > weatherConditions.getMaxCloudiness()) {
-            return false;
+    /**
+     * @return the positions of the profiles in the index for which the weather of every forecast is ok, or unknown
+     */
+    private BitSet compatibleProfiles(WeatherThresholdIndex index, List<Forecast> forecasts) {
+        var compatible = new BitSet(index.size());
+        compatible.set(0, index.size());
+        for (Forecast forecast : forecasts) {
+            compatible.and(index.compatibleWith(forecast));
+            if (compatible.isEmpty()) {
+                break;
+            }
         }
+        return compatible;
+    }
 
-        // precipitation
-        var precipitation = forecast.getPrecipitation();
-        if (precipitation != null) {
-            switch (precipitation.getType()) {
-                case FOG -> {
-                    if (!isPrecipitationOkOrUnknown(weatherConditions.getMaxFog(), precipitation.getIntensity(), precipitation.getProbability())) {
-                        return false;
-                    }
-                }
-                case RAIN -> {
-                    if (!isPrecipitationOkOrUnknown(weatherConditions.getMaxRain(), precipitation.getIntensity(), precipitation.getProbability())) {
-                        return false;
-                    }
-                }
-                case SNOW -> {
-                    if (!isPrecipitationOkOrUnknown(weatherConditions.getMaxSnow(), precipitation.getIntensity(), precipitation.getProbability())) {
-                        return false;
-                    }
-                }
-                default -> {
-                    // do nothing
+    /**
+     * Asks the forecasts of all searches in one request, for the locations of which the forecasts have not been stored yet.
+     */
+    @Override
+    public void prefetch(ActivityColumns columns, Map<SearchParameter, BitSet> candidatesPerParameter, SearchContext searchContext) {
+        var keys = new HashSet<ForecastKey>();
+        candidatesPerParameter.forEach((searchParameter, candidates) -> {
+            var weatherSearchParameter = (WeatherSearchParameter) searchParameter;
+            var startDate = weatherSearchParameter.getStartDate();
+            var endDate = weatherSearchParameter.getEndDate();
+
+            var locations = new HashSet<String>();
+            for (int ordinal = candidates.nextSetBit(0); ordinal >= 0; ordinal = candidates.nextSetBit(ordinal + 1)) {
+                if (canBeChecked(columns, ordinal)) {
+                    locations.add(columns.location(columns.locationIds()[ordinal]));
                 }
             }
+            locations.removeAll(forecastStore.find(locations, startDate, endDate).keySet());
+            locations.forEach(location -> keys.add(new ForecastKey(location, startDate, endDate)));
+        });
 
+        if (keys.isEmpty()) {
+            return;
         }
 
-        return true;
+        try {
+            var forecastsPerKey = searchContext.within(() -> weatherService.findForecasts(keys));
+            keys.forEach(key -> searchContext.addPrefetched(key, forecastsPerKey.getOrDefault(key, List.of())));
+        } catch (RuntimeException e) {
+            // every search asks its own forecasts, and degrades on its own when that fails too
+            log.warn("Could not prefetch forecasts: {}", e.getMessage());
+        }
     }
 
-    private boolean isPrecipitationOkOrUnknown(Integer max, int forecastedIntensity, double forecastedProbability) {
-        if (max == null) {
-            return true;
+    private boolean canBeChecked(ActivityColumns columns, int ordinal) {
+        return columns.locationIds()[ordinal] != ActivityColumns.NONE
+                && columns.weatherProfileIds()[ordinal] != ActivityColumns.NONE;
+    }
+
+    /**
+     * @param unknownLocations gets the locations of which the forecasts could not be retrieved
+     * @return forecasts, grouped by location
+     */
+    private Map<String, List<Forecast>> findForecasts(WeatherSearchParameter weatherSearchParameter, Set<String> locations,
+                                                      SearchContext searchContext, Set<String> unknownLocations) {
+        var startDate = weatherSearchParameter.getStartDate();
+        var endDate = weatherSearchParameter.getEndDate();
+
+        // use prefetched forecasts when possible, from the store or from the lookup of a batch of searches,
+        // only ask the weather service for the remaining locations
+        var prefetchedForecasts = forecastStore.find(locations, startDate, endDate);
+        var forecastsByLocation = new HashMap<>(prefetchedForecasts);
+
+        var locationsToFetch = new HashSet<String>();
+        for (String location : locations) {
+            if (!prefetchedForecasts.containsKey(location)) {
+                searchContext.<List<Forecast>>findPrefetched(new ForecastKey(location, startDate, endDate))
+                        .ifPresentOrElse(forecasts -> forecastsByLocation.put(location, forecasts), () -> locationsToFetch.add(location));
+            }
         }
-        var precipitation = ((double) forecastedIntensity / 100) * (forecastedProbability / 100) * 100;
-        return precipitation <= max;
+        if (!locationsToFetch.isEmpty()) {
+            try {
+                var forecasts = searchContext.within(() -> weatherService.findForecasts(locationsToFetch, startDate, endDate));
+                for (Forecast forecast : forecasts) {
+                    forecastsByLocation.computeIfAbsent(forecast.getLocation(), location -> new ArrayList<>())
+                            .add(forecast);
+                }
+            } catch (RuntimeException e) {
+                // The weather of these locations is unknown, see SearchContext#keepIfUnknownAccepted.
+                // A search that accepts unknown conditions degrades further: old forecasts are used when they are available.
+                unknownLocations.addAll(locationsToFetch);
+                if (searchContext.acceptsUnknown()) {
+                    log.warn("Could not retrieve forecasts, falling back to stored forecasts: {}", e.getMessage());
+                    var staleForecasts = forecastStore.findIncludingStale(locationsToFetch, startDate, endDate);
+                    forecastsByLocation.putAll(staleForecasts);
+                    unknownLocations.removeAll(staleForecasts.keySet());
+                } else {
+                    log.warn("Could not retrieve forecasts, leaving out the activities of which the weather cannot be checked: {}", e.getMessage());
+                }
+            }
+        }
+
+        return forecastsByLocation;
     }
 
     @Override
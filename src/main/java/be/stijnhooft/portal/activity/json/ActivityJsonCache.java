@@ -0,0 +1,97 @@
+package be.stijnhooft.portal.activity.json;
+
+import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.messaging.ActivitiesChangedEvent;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * The json of every activity, as it has been written before.
+ * The json of an activity only changes when its version changes, so the cache is keyed by id and version.
+ * Only the json of the latest version of an activity is kept.
+ *
+ * The cached json is encoded once, and afterwards copied as utf-8 bytes into the output of every response that contains the activity.
+ */
+@Component
+public class ActivityJsonCache {
+
+    private final Map<String, CachedJson> jsonPerId = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    public ActivityJsonCache(MeterRegistry meterRegistry) {
+        this.hits = meterRegistry.counter("activity.json.cache", "outcome", "hit");
+        this.misses = meterRegistry.counter("activity.json.cache", "outcome", "miss");
+        Gauge.builder("activity.json.cache.size", jsonPerId, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Only activities that have been saved, and that carry nothing besides what has been saved, can be cached:
+     * a new or changed activity that has not been saved can differ from the saved one with the same version.
+     */
+    public static boolean isCacheable(Activity activity) {
+        return activity.getId() != null
+                && activity.getVersion() != null
+                && activity.getNewPhotoContent() == null;
+    }
+
+    /**
+     * @param serializer writes the json of the activity, when it is not in the cache
+     * @return the json of the activity
+     */
+    public SerializableString get(Activity activity, Supplier<byte[]> serializer) {
+        var cachedJson = jsonPerId.get(activity.getId());
+        if (cachedJson != null && Objects.equals(cachedJson.version, activity.getVersion())) {
+            hits.increment();
+            return cachedJson.json;
+        }
+
+        misses.increment();
+        var json = new SerializedString(new String(serializer.get(), StandardCharsets.UTF_8));
+        // encode once, so that the utf-8 bytes are reused by every response
+        json.asUnquotedUTF8();
+        jsonPerId.put(activity.getId(), new CachedJson(activity.getVersion(), json));
+        return json;
+    }
+
+    public void clear() {
+        jsonPerId.clear();
+    }
+
+    /**
+     * Removes the json of changed activities early, instead of waiting until they are written again.
+     * This way, the json of deleted activities does not stay in the cache.
+     */
+    @EventListener
+    public void onActivitiesChanged(ActivitiesChangedEvent event) {
+        if (event.getIds().isEmpty()) {
+            clear();
+        } else {
+            event.getIds().forEach(jsonPerId::remove);
+        }
+    }
+
+    private static class CachedJson {
+
+        private final Integer version;
+        private final SerializedString json;
+
+        CachedJson(Integer version, SerializedString json) {
+            this.version = version;
+            this.json = json;
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+package be.stijnhooft.portal.activity.json;
+
+import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.domain.FoundActivity;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Jackson module that writes activities through the {@link ActivityJsonCache}.
+ * Spring Boot registers it on the object mapper of the application, so that it is used for every response that contains activities.
+ */
+@Component
+public class ActivityJsonModule extends SimpleModule {
+
+    public ActivityJsonModule(ActivityJsonCache activityJsonCache) {
+        super("ActivityJsonModule");
+        setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDescription, JsonSerializer<?> serializer) {
+                var beanClass = beanDescription.getBeanClass();
+                if (beanClass == Activity.class) {
+                    return new CachedActivitySerializer((JsonSerializer<Object>) serializer, activityJsonCache);
+                } else if (beanClass == FoundActivity.class) {
+                    return new FoundActivitySerializer((JsonSerializer<Object>) serializer);
+                }
+                return serializer;
+            }
+        });
+    }
+
+}
@@ -0,0 +1,109 @@
+package be.stijnhooft.portal.activity.json;
+
+import be.stijnhooft.portal.activity.domain.Activity;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.json.UTF8JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.NameTransformer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes an activity to json through the {@link ActivityJsonCache}: the json of an activity is only built once per version,
+ * afterwards the cached bytes are copied into the output.
+ *
+ * The cache is only used when writing compact json as utf-8. In all other cases (pretty printed json, other formats, ...)
+ * and for activities that are not cacheable, the activity is written by the default serializer.
+ */
+class CachedActivitySerializer extends StdSerializer<Activity> implements ContextualSerializer, ResolvableSerializer {
+
+    private static final JsonFactory DEFAULT_JSON_FACTORY = new JsonFactory();
+
+    private final JsonSerializer<Object> defaultSerializer;
+    private final ActivityJsonCache activityJsonCache;
+
+    CachedActivitySerializer(JsonSerializer<Object> defaultSerializer, ActivityJsonCache activityJsonCache) {
+        super(Activity.class);
+        this.defaultSerializer = defaultSerializer;
+        this.activityJsonCache = activityJsonCache;
+    }
+
+    @Override
+    public void serialize(Activity activity, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        if (!canUseCache(activity, generator)) {
+            defaultSerializer.serialize(activity, generator, provider);
+            return;
+        }
+
+        try {
+            var json = activityJsonCache.get(activity, () -> serializeToBytes(activity, generator, provider));
+            generator.writeRawValue(json);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void serializeWithType(Activity activity, JsonGenerator generator, SerializerProvider provider, TypeSerializer typeSerializer) throws IOException {
+        defaultSerializer.serializeWithType(activity, generator, provider, typeSerializer);
+    }
+
+    @Override
+    public JsonSerializer<Activity> unwrappingSerializer(NameTransformer unwrapper) {
+        // unwrapped, the activity is only a part of another object: it cannot be copied as a whole
+        @SuppressWarnings("unchecked")
+        var unwrappingSerializer = (JsonSerializer<Activity>) (JsonSerializer<?>) defaultSerializer.unwrappingSerializer(unwrapper);
+        return unwrappingSerializer;
+    }
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+        if (defaultSerializer instanceof ResolvableSerializer) {
+            ((ResolvableSerializer) defaultSerializer).resolve(provider);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property) throws JsonMappingException {
+        if (!(defaultSerializer instanceof ContextualSerializer)) {
+            return this;
+        }
+        var contextualSerializer = ((ContextualSerializer) defaultSerializer).createContextual(provider, property);
+        if (contextualSerializer == defaultSerializer) {
+            return this;
+        }
+        return new CachedActivitySerializer((JsonSerializer<Object>) contextualSerializer, activityJsonCache);
+    }
+
+    private boolean canUseCache(Activity activity, JsonGenerator generator) {
+        return generator instanceof UTF8JsonGenerator
+                && generator.getPrettyPrinter() == null
+                && ActivityJsonCache.isCacheable(activity);
+    }
+
+    private byte[] serializeToBytes(Activity activity, JsonGenerator generator, SerializerProvider provider) {
+        // use the same factory as the response, so that the json of the activity is written with the same features
+        var jsonFactory = generator.getCodec() != null ? generator.getCodec().getFactory() : DEFAULT_JSON_FACTORY;
+        try (var bytes = new ByteArrayBuilder();
+             var fragmentGenerator = jsonFactory.createGenerator(bytes, JsonEncoding.UTF8)) {
+            defaultSerializer.serialize(activity, fragmentGenerator, provider);
+            fragmentGenerator.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
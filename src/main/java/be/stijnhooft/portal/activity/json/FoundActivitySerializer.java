@@ -0,0 +1,44 @@
+package be.stijnhooft.portal.activity.json;
+
+import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.domain.FoundActivity;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * A found activity without unknown conditions has the same json as the activity itself,
+ * so it is written as the activity, which can come from the {@link ActivityJsonCache}.
+ * Otherwise, the found activity is written by the default serializer.
+ */
+class FoundActivitySerializer extends StdSerializer<FoundActivity> implements ResolvableSerializer {
+
+    private final JsonSerializer<Object> defaultSerializer;
+
+    FoundActivitySerializer(JsonSerializer<Object> defaultSerializer) {
+        super(FoundActivity.class);
+        this.defaultSerializer = defaultSerializer;
+    }
+
+    @Override
+    public void serialize(FoundActivity foundActivity, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        if (foundActivity.getActivity() != null && (foundActivity.getUnknown() == null || foundActivity.getUnknown().isEmpty())) {
+            provider.findValueSerializer(Activity.class).serialize(foundActivity.getActivity(), generator, provider);
+        } else {
+            defaultSerializer.serialize(foundActivity, generator, provider);
+        }
+    }
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+        if (defaultSerializer instanceof ResolvableSerializer) {
+            ((ResolvableSerializer) defaultSerializer).resolve(provider);
+        }
+    }
+
+}
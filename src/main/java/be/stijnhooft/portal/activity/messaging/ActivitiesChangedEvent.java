@@ -0,0 +1,20 @@
+package be.stijnhooft.portal.activity.messaging;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collection;
+
+/**
+ * Application event, published in-process whenever activities have been created, updated or deleted.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ActivitiesChangedEvent {
+
+    /** ids of the changed activities. Empty when it is unknown which activities have changed (for example after an import). **/
+    private final Collection<String> ids;
+
+}
@@ -0,0 +1,23 @@
+package be.stijnhooft.portal.activity.messaging;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Announces that an instance changed activities.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatalogChange {
+
+    /** the instance that made the change **/
+    private String instance;
+
+    /** the ids of the changed activities. Empty when it is unknown which activities changed. **/
+    private List<String> ids;
+
+}
@@ -0,0 +1,60 @@
+package be.stijnhooft.portal.activity.messaging;
+
+import be.stijnhooft.portal.activity.catalog.ActivityCatalog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.stream.annotation.StreamListener;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+/**
+ * Keeps the activity catalogs of all running instances coherent.
+ *
+ * Every change made by this instance is announced on the {@link CatalogTopic}, with the ids of the changed activities.
+ * Other instances read these announcements and only reload the changed activities.
+ * Announcements sent by this instance itself are ignored.
+ *
+ * An announcement that gets lost is caught up by the periodic reconciliation of the {@link ActivityCatalog}.
+ */
+@Slf4j
+@Component
+public class CatalogSynchronizer {
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final ActivityCatalog activityCatalog;
+    private final CatalogTopic catalogTopic;
+
+    public CatalogSynchronizer(ActivityCatalog activityCatalog, CatalogTopic catalogTopic) {
+        this.activityCatalog = activityCatalog;
+        this.catalogTopic = catalogTopic;
+    }
+
+    @EventListener
+    public void onActivitiesChanged(ActivitiesChangedEvent activitiesChangedEvent) {
+        var catalogChange = new CatalogChange(instanceId, new ArrayList<>(activitiesChangedEvent.getIds()));
+        try {
+            if (!catalogTopic.writeToCatalogTopic().send(MessageBuilder.withPayload(catalogChange).build())) {
+                log.error("Could not announce the change of activities {} to the other instances", activitiesChangedEvent.getIds());
+            }
+        } catch (RuntimeException e) {
+            // the change has been saved, only the other instances do not know about it until they reconcile their catalog
+            log.error("Could not announce the change of activities {} to the other instances", activitiesChangedEvent.getIds(), e);
+        }
+    }
+
+    @StreamListener(CatalogTopic.INPUT)
+    public void onCatalogChange(CatalogChange catalogChange) {
+        if (instanceId.equals(catalogChange.getInstance())) {
+            return;
+        }
+
+        var ids = catalogChange.getIds() == null ? new ArrayList<String>() : catalogChange.getIds();
+        log.info("Activities {} have been changed by another instance", ids);
+        activityCatalog.refresh(ids);
+    }
+
+}
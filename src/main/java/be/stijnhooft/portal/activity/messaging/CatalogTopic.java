@@ -0,0 +1,22 @@
+package be.stijnhooft.portal.activity.messaging;
+
+import org.springframework.cloud.stream.annotation.Input;
+import org.springframework.cloud.stream.annotation.Output;
+import org.springframework.messaging.MessageChannel;
+
+/**
+ * Destination on which the instances of this module announce changes of activities to each other.
+ * Separate from the Event topic, so that the other modules of the portal do not receive these internal messages.
+ */
+public interface CatalogTopic {
+
+    String INPUT = "readFromCatalogTopic";
+    String OUTPUT = "writeToCatalogTopic";
+
+    @Input(INPUT)
+    MessageChannel readFromCatalogTopic();
+
+    @Output(OUTPUT)
+    MessageChannel writeToCatalogTopic();
+
+}
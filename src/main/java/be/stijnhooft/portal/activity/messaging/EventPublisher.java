@@ -1,28 +1,261 @@
 package be.stijnhooft.portal.activity.messaging;
 
 import be.stijnhooft.portal.model.domain.Event;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
 
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Publishes events to the Event topic.
+ * Events are sent in batches, limited by both the number of events and their serialized size,
+ * so that a long list of events does not end up in one huge message.
+ *
+ * The broker confirms every batch it has received (publisher confirms), or refuses it (nack).
+ * Only a limited number of batches can wait for their confirmation: when that limit is reached,
+ * sending waits until a confirmation comes in, or fails after the send timeout.
+ * Batches that are not confirmed within the confirm timeout are counted as unconfirmed.
+ *
+ * When a batch cannot be sent, the other batches are still sent, after which an {@link EventPublishingException} is thrown.
+ */
 @Component
 @Slf4j
 public class EventPublisher {
 
+  public static final String CONFIRM_CHANNEL = "eventTopicConfirms";
+
+  /** header that identifies a batch, to match the confirmation of the broker with the batch **/
+  public static final String BATCH_ID = "activityEventBatchId";
+
   private final EventTopic eventTopic;
+  private final ObjectMapper objectMapper;
+  private final int maxBatchSize;
+  private final int maxBatchBytes;
+  private final long sendTimeoutInMs;
+  private final long confirmTimeoutInMs;
+
+  private final Semaphore unconfirmedPermits;
+  /** batch id -> time at which the batch has been sent, in nanos **/
+  private final Map<String, Long> unconfirmedBatches = new ConcurrentHashMap<>();
+
+  private final Timer publishTimer;
+  private final Counter publishedEvents;
+  private final Counter failedBatches;
+  private final Counter confirmedBatches;
+  private final Counter nackedBatches;
+  private final Counter expiredBatches;
 
   @Autowired
-  public EventPublisher(EventTopic eventTopic) {
+  public EventPublisher(EventTopic eventTopic,
+                        ObjectMapper objectMapper,
+                        MeterRegistry meterRegistry,
+                        @Value("${activity.events.batch.max-size:50}") int maxBatchSize,
+                        @Value("${activity.events.batch.max-bytes:65536}") int maxBatchBytes,
+                        @Value("${activity.events.send-timeout-ms:5000}") long sendTimeoutInMs,
+                        @Value("${activity.events.max-unconfirmed:20}") int maxUnconfirmed,
+                        @Value("${activity.events.confirm-timeout-ms:30000}") long confirmTimeoutInMs) {
     this.eventTopic = eventTopic;
+    this.objectMapper = objectMapper;
+    this.maxBatchSize = maxBatchSize;
+    this.maxBatchBytes = maxBatchBytes;
+    this.sendTimeoutInMs = sendTimeoutInMs;
+    this.confirmTimeoutInMs = confirmTimeoutInMs;
+    this.unconfirmedPermits = new Semaphore(maxUnconfirmed);
+
+    this.publishTimer = meterRegistry.timer("activity.events.publish");
+    this.publishedEvents = meterRegistry.counter("activity.events.published");
+    this.failedBatches = meterRegistry.counter("activity.events.publish.failures");
+    this.confirmedBatches = meterRegistry.counter("activity.events.publish.confirms");
+    this.nackedBatches = meterRegistry.counter("activity.events.publish.nacks");
+    this.expiredBatches = meterRegistry.counter("activity.events.publish.unconfirmed");
+    Gauge.builder("activity.events.publish.awaiting-confirm", unconfirmedBatches, Map::size)
+            .register(meterRegistry);
   }
 
+  /**
+   * @throws EventPublishingException when not all events could be sent
+   */
   public void publish(Collection<Event> events) {
-      log.info("Sending events to the Event topic");
-      log.debug("{}", events);
-      eventTopic.writeToEventTopic().send(MessageBuilder.withPayload(events).build());
+      var batches = toBatches(events);
+      log.info("Sending {} events to the Event topic in {} batches", events.size(), batches.size());
+
+      int failedEvents = 0;
+      for (SerializedBatch batch : batches) {
+          log.debug("{}", batch.events);
+          var sent = publishTimer.record(() -> send(batch));
+          if (sent == null || !sent) {
+              failedEvents += batch.events.size();
+          }
+      }
+
+      if (failedEvents > 0) {
+          throw new EventPublishingException(failedEvents, events.size());
+      }
+  }
+
+  private boolean send(SerializedBatch batch) {
+      try {
+          if (!unconfirmedPermits.tryAcquire(sendTimeoutInMs, TimeUnit.MILLISECONDS)) {
+              log.error("Not sending a batch of {} events, {} batches are still waiting for a confirmation of the broker",
+                      batch.events.size(), unconfirmedBatches.size());
+              failedBatches.increment();
+              return false;
+          }
+      } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          failedBatches.increment();
+          return false;
+      }
+
+      var batchId = UUID.randomUUID().toString();
+      unconfirmedBatches.put(batchId, System.nanoTime());
+      try {
+          var message = MessageBuilder.withPayload(batch.payload)
+                  .setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON_VALUE)
+                  .setHeader(BATCH_ID, batchId)
+                  .build();
+          if (eventTopic.writeToEventTopic().send(message, sendTimeoutInMs)) {
+              publishedEvents.increment(batch.events.size());
+              return true;
+          }
+          log.error("Timed out while sending a batch of {} events to the Event topic", batch.events.size());
+      } catch (RuntimeException e) {
+          log.error("Could not send a batch of {} events to the Event topic", batch.events.size(), e);
+      }
+
+      failedBatches.increment();
+      forget(batchId);
+      return false;
+  }
+
+  /**
+   * The broker acknowledges (ack) or refuses (nack) every batch it has received.
+   */
+  @ServiceActivator(inputChannel = CONFIRM_CHANNEL)
+  public void confirmed(Message<?> confirmation) {
+      var batchId = confirmation.getHeaders().get(BATCH_ID, String.class);
+      var ack = confirmation.getHeaders().get(AmqpHeaders.PUBLISH_CONFIRM, Boolean.class);
+      if (Boolean.TRUE.equals(ack)) {
+          log.debug("Event batch {} has been confirmed by the broker", batchId);
+          confirmedBatches.increment();
+      } else {
+          log.error("Event batch {} has been refused by the broker: {}", batchId,
+                  confirmation.getHeaders().get(AmqpHeaders.PUBLISH_CONFIRM_NACK_CAUSE));
+          nackedBatches.increment();
+      }
+
+      if (batchId != null) {
+          forget(batchId);
+      }
+  }
+
+  /**
+   * Gives up on batches of which the confirmation does not come, so that they do not block sending forever.
+   */
+  @Scheduled(fixedDelayString = "${activity.events.confirm-timeout-ms:30000}")
+  public void expireUnconfirmed() {
+      long oldestAllowed = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(confirmTimeoutInMs);
+      unconfirmedBatches.forEach((batchId, sentAt) -> {
+          if (sentAt - oldestAllowed < 0 && forget(batchId)) {
+              log.error("Event batch {} has not been confirmed by the broker within {} ms", batchId, confirmTimeoutInMs);
+              expiredBatches.increment();
+          }
+      });
+  }
+
+  private boolean forget(String batchId) {
+      if (unconfirmedBatches.remove(batchId) != null) {
+          unconfirmedPermits.release();
+          return true;
+      }
+      return false;
+  }
+
+  /**
+   * Every event is serialized once: its size decides the batch, and its bytes become part of the payload of the batch.
+   */
+  List<SerializedBatch> toBatches(Collection<Event> events) {
+      List<SerializedBatch> batches = new ArrayList<>();
+      var currentBatch = new SerializedBatch();
+
+      for (Event event : events) {
+          byte[] eventBytes = serialize(event);
+          boolean batchIsFull = currentBatch.events.size() >= maxBatchSize
+                  || (currentBatch.size() + eventBytes.length > maxBatchBytes && !currentBatch.events.isEmpty());
+          if (batchIsFull) {
+              batches.add(currentBatch.close());
+              currentBatch = new SerializedBatch();
+          }
+          currentBatch.add(event, eventBytes);
+      }
+
+      if (!currentBatch.events.isEmpty()) {
+          batches.add(currentBatch.close());
+      }
+      return batches;
+  }
+
+  private byte[] serialize(Event event) {
+      try {
+          return objectMapper.writeValueAsBytes(event);
+      } catch (JsonProcessingException e) {
+          throw new IllegalArgumentException("Could not serialize event " + event, e);
+      }
+  }
+
+  /**
+   * A batch of events, with the JSON array of the events as payload.
+   */
+  static class SerializedBatch {
+
+      final List<Event> events = new ArrayList<>();
+      private final ByteArrayOutputStream json = new ByteArrayOutputStream();
+      byte[] payload;
+
+      SerializedBatch() {
+          json.write('[');
+      }
+
+      void add(Event event, byte[] eventBytes) {
+          if (!events.isEmpty()) {
+              json.write(',');
+          }
+          json.writeBytes(eventBytes);
+          events.add(event);
+      }
+
+      int size() {
+          return json.size();
+      }
+
+      SerializedBatch close() {
+          json.write(']');
+          payload = json.toByteArray();
+          return this;
+      }
   }
 
 }
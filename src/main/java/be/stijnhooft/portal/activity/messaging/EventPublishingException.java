@@ -0,0 +1,19 @@
+package be.stijnhooft.portal.activity.messaging;
+
+import lombok.Getter;
+
+/**
+ * Thrown when not all events could be handed over to the broker.
+ */
+@Getter
+public class EventPublishingException extends RuntimeException {
+
+    /** number of events that have not been sent **/
+    private final int failedEvents;
+
+    public EventPublishingException(int failedEvents, int events) {
+        super(failedEvents + " of " + events + " events could not be sent to the Event topic");
+        this.failedEvents = failedEvents;
+    }
+
+}
@@ -0,0 +1,139 @@
+package be.stijnhooft.portal.activity.remote;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+
+/**
+ * Stops calling a service that keeps failing, so that callers fail fast instead of waiting for timeouts.
+ *
+ * Closed: calls are allowed. The outcome of the last calls is kept; when too many of them failed, the breaker opens.
+ * Open: calls are refused, until the open duration has passed.
+ * Half open: one trial call is allowed. When it succeeds, the breaker closes, otherwise it opens again.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureRateThreshold;
+    private final int minimumNumberOfCalls;
+    private final long openDurationInMillis;
+    private final Clock clock;
+
+    /** outcome of the last calls, as a ring buffer **/
+    private final boolean[] failures;
+    private int next;
+    private int numberOfCalls;
+    private int numberOfFailures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialCallInFlight;
+
+    /**
+     * @param failureRateThreshold percentage of failed calls in the window that opens the breaker
+     * @param windowSize number of last calls that are taken into account
+     * @param minimumNumberOfCalls number of calls in the window before the failure rate is taken into account
+     */
+    public CircuitBreaker(String name, int failureRateThreshold, int windowSize, int minimumNumberOfCalls, long openDurationInMillis, Clock clock) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumNumberOfCalls = minimumNumberOfCalls;
+        this.openDurationInMillis = openDurationInMillis;
+        this.clock = clock;
+        this.failures = new boolean[windowSize];
+    }
+
+    /**
+     * @return true when a call is allowed. A caller that gets true, needs to report the outcome with {@link #onSuccess()} or {@link #onFailure()},
+     * or {@link #onNotCalled()} when the service was not called after all.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && clock.millis() - openedAt >= openDurationInMillis) {
+            state = State.HALF_OPEN;
+            trialCallInFlight = false;
+        }
+
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (trialCallInFlight) {
+                    return false;
+                }
+                trialCallInFlight = true;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            log.info("Circuit breaker of {} closes", name);
+            state = State.CLOSED;
+            reset();
+        } else {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (numberOfCalls >= minimumNumberOfCalls && numberOfFailures * 100 >= failureRateThreshold * numberOfCalls) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * The service was not called after all, for example because there was no capacity to call it.
+     * No outcome is recorded, and in half open state another trial call is allowed.
+     */
+    public synchronized void onNotCalled() {
+        if (state == State.HALF_OPEN) {
+            trialCallInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (numberOfCalls == failures.length) {
+            if (failures[next]) {
+                numberOfFailures--;
+            }
+        } else {
+            numberOfCalls++;
+        }
+        failures[next] = failure;
+        if (failure) {
+            numberOfFailures++;
+        }
+        next = (next + 1) % failures.length;
+    }
+
+    private void open() {
+        log.warn("Circuit breaker of {} opens for {} ms", name, openDurationInMillis);
+        state = State.OPEN;
+        openedAt = clock.millis();
+        trialCallInFlight = false;
+        reset();
+    }
+
+    private void reset() {
+        next = 0;
+        numberOfCalls = 0;
+        numberOfFailures = 0;
+    }
+
+}
@@ -0,0 +1,12 @@
+package be.stijnhooft.portal.activity.remote;
+
+/**
+ * Thrown instead of calling a service of which the circuit breaker is open.
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+
+    public CircuitBreakerOpenException(String serviceId) {
+        super("Circuit breaker of " + serviceId + " is open, not calling it");
+    }
+
+}
@@ -0,0 +1,36 @@
+package be.stijnhooft.portal.activity.remote;
+
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.entity.GzipCompressingEntity;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Compresses the body of outbound requests with gzip, when the body is large enough to be worth it.
+ * Only enable this when the remote services accept gzip encoded requests.
+ */
+public class GzipRequestInterceptor implements HttpRequestInterceptor {
+
+    private final long minimumSize;
+
+    public GzipRequestInterceptor(long minimumSize) {
+        this.minimumSize = minimumSize;
+    }
+
+    @Override
+    public void process(HttpRequest request, HttpContext context) {
+        if (!(request instanceof HttpEntityEnclosingRequest)) {
+            return;
+        }
+
+        var enclosingRequest = (HttpEntityEnclosingRequest) request;
+        var entity = enclosingRequest.getEntity();
+        if (entity != null
+                && entity.getContentEncoding() == null
+                && (entity.getContentLength() < 0 || entity.getContentLength() >= minimumSize)) {
+            enclosingRequest.setEntity(new GzipCompressingEntity(entity));
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+package be.stijnhooft.portal.activity.remote;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the latency of the last calls, to know the 95th percentile.
+ */
+public class LatencyTracker {
+
+    private final long[] latencies;
+    private int next;
+    private int size;
+
+    public LatencyTracker(int windowSize) {
+        this.latencies = new long[windowSize];
+    }
+
+    public synchronized void record(long latencyInMillis) {
+        latencies[next] = latencyInMillis;
+        next = (next + 1) % latencies.length;
+        size = Math.min(size + 1, latencies.length);
+    }
+
+    /**
+     * @return the 95th percentile of the last calls, or the default value when not enough calls have been made to know it
+     */
+    public synchronized long p95(long defaultValue) {
+        if (size < 20) {
+            return defaultValue;
+        }
+        var sorted = Arrays.copyOf(latencies, size);
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(0.95 * size) - 1];
+    }
+
+}
@@ -0,0 +1,143 @@
+package be.stijnhooft.portal.activity.remote;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Merges the lookups of concurrent callers into one upstream call.
+ *
+ * The first caller opens a batch and waits for a short window. Callers that arrive during that window add their keys to the batch.
+ * When the window has passed, or the batch is full, the keys of the batch are loaded in one call,
+ * and every caller gets the values of its own keys.
+ *
+ * No extra threads are used: the batch is loaded by the caller that opened it, or by the caller that filled it.
+ * The batch is loaded with the most urgent {@link Priority} of its callers, so that an interactive caller never waits for a background lane.
+ * The size of every loaded batch is recorded in activity.remote.batch.size.
+ */
+public class MicroBatcher<K, V> {
+
+    private final Function<Set<K>, Map<K, V>> loader;
+    private final long windowInMillis;
+    private final int maxBatchSize;
+    private final DistributionSummary batchSizes;
+
+    private final Object lock = new Object();
+    private Batch openBatch;
+
+    /**
+     * @param windowInMillis how long a batch stays open. When 0 or less, every lookup is loaded on its own.
+     */
+    public MicroBatcher(String name, Function<Set<K>, Map<K, V>> loader, long windowInMillis, int maxBatchSize, MeterRegistry meterRegistry) {
+        this.loader = loader;
+        this.windowInMillis = windowInMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.batchSizes = DistributionSummary.builder("activity.remote.batch.size")
+                .description("Number of keys per upstream call")
+                .tag("lookup", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the value per key. Keys without a value are left out.
+     */
+    public Map<K, V> getAll(Set<K> keys) {
+        if (windowInMillis <= 0) {
+            batchSizes.record(keys.size());
+            return loader.apply(keys);
+        }
+
+        Batch batch;
+        boolean openedBatch = false;
+        boolean filledBatch = false;
+        synchronized (lock) {
+            if (openBatch == null) {
+                openBatch = new Batch();
+                openedBatch = true;
+            }
+            batch = openBatch;
+            batch.keys.addAll(keys);
+            batch.priority = Priority.highest(batch.priority, Priority.current());
+            if (batch.keys.size() >= maxBatchSize) {
+                openBatch = null;
+                filledBatch = true;
+            }
+        }
+
+        if (filledBatch) {
+            batch.closed.countDown();
+            load(batch);
+        } else if (openedBatch) {
+            awaitWindow(batch);
+            synchronized (lock) {
+                if (openBatch == batch) {
+                    openBatch = null;
+                }
+            }
+            load(batch);
+        }
+
+        var values = join(batch.values);
+        var result = new HashMap<K, V>();
+        for (K key : keys) {
+            var value = values.get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    private void awaitWindow(Batch batch) {
+        try {
+            batch.closed.await(windowInMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void load(Batch batch) {
+        if (!batch.loading.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            batchSizes.record(batch.keys.size());
+            batch.values.complete(batch.priority.call(() -> loader.apply(batch.keys)));
+        } catch (RuntimeException | Error e) {
+            batch.values.completeExceptionally(e);
+        }
+    }
+
+    private Map<K, V> join(CompletableFuture<Map<K, V>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private class Batch {
+        /** only changed while the batch is open, and while holding the lock **/
+        private final Set<K> keys = new LinkedHashSet<>();
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private final AtomicBoolean loading = new AtomicBoolean();
+        private final CompletableFuture<Map<K, V>> values = new CompletableFuture<>();
+        /** only changed while the batch is open, and while holding the lock **/
+        private Priority priority = Priority.BACKGROUND;
+    }
+
+}
@@ -0,0 +1,13 @@
+package be.stijnhooft.portal.activity.remote;
+
+/**
+ * Thrown when a call to another service could not get a permit in time, because too many calls to that service are in progress.
+ * The service itself has not been called.
+ */
+public class OutboundCapacityExceededException extends RuntimeException {
+
+    public OutboundCapacityExceededException(String serviceId, Priority priority) {
+        super("No capacity left for a " + priority.name().toLowerCase() + " call to " + serviceId);
+    }
+
+}
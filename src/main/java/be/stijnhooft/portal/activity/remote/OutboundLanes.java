@@ -0,0 +1,110 @@
+package be.stijnhooft.portal.activity.remote;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Schedules the calls to other services in two lanes: interactive and background (see {@link Priority}).
+ *
+ * Every service gets a limited number of permits, a call holds a permit while it is in progress.
+ * Interactive calls always get the next free permit, background calls get the permits that are left,
+ * and never more than a part of all permits.
+ *
+ * Per service and lane, the number of waiting calls is exposed as activity.remote.lane.queue-depth
+ * and the time a call waits for a permit as activity.remote.lane.wait.
+ */
+@Slf4j
+@Component
+public class OutboundLanes {
+
+    private final MeterRegistry meterRegistry;
+    private final int permits;
+    private final int backgroundPermits;
+    private final long maxWait;
+    private final Map<String, ServiceLanes> lanesPerService = new ConcurrentHashMap<>();
+
+    public OutboundLanes(MeterRegistry meterRegistry,
+                         @Value("${activity.remote.lanes.permits:16}") int permits,
+                         @Value("${activity.remote.lanes.background-share:0.5}") double backgroundShare,
+                         @Value("${activity.remote.lanes.max-wait-ms:5000}") long maxWait) {
+        this.meterRegistry = meterRegistry;
+        this.permits = permits;
+        this.backgroundPermits = Math.max(1, (int) (permits * backgroundShare));
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Makes a call to another service with the priority of the current thread, when a permit for that service is available.
+     *
+     * @throws OutboundCapacityExceededException when no permit became available in time
+     */
+    public <T> T call(String serviceId, Supplier<T> call) {
+        var priority = Priority.current();
+        var lanes = lanesOf(serviceId);
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = lanes.permits.tryAcquire(priority, maxWait, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OutboundCapacityExceededException(serviceId, priority);
+        } finally {
+            lanes.waitTimer(priority).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (!acquired) {
+            log.warn("No permit for a {} call to {} within {} ms", priority, serviceId, maxWait);
+            throw new OutboundCapacityExceededException(serviceId, priority);
+        }
+
+        try {
+            return call.get();
+        } finally {
+            lanes.permits.release(priority);
+        }
+    }
+
+    private ServiceLanes lanesOf(String serviceId) {
+        return lanesPerService.computeIfAbsent(serviceId, ServiceLanes::new);
+    }
+
+    private class ServiceLanes {
+
+        private final PrioritizedPermits permits;
+        private final Map<Priority, Timer> waitTimers = new ConcurrentHashMap<>();
+
+        ServiceLanes(String serviceId) {
+            this.permits = new PrioritizedPermits(OutboundLanes.this.permits, backgroundPermits);
+            for (Priority priority : Priority.values()) {
+                var lane = priority.name().toLowerCase();
+                waitTimers.put(priority, Timer.builder("activity.remote.lane.wait")
+                        .description("Time a call waits for a permit")
+                        .tag("service", serviceId)
+                        .tag("lane", lane)
+                        .register(meterRegistry));
+                Gauge.builder("activity.remote.lane.queue-depth", permits, lanePermits -> lanePermits.getWaiting(priority))
+                        .description("Number of calls waiting for a permit")
+                        .tag("service", serviceId)
+                        .tag("lane", lane)
+                        .register(meterRegistry);
+            }
+            Gauge.builder("activity.remote.lane.in-use", permits, PrioritizedPermits::getInUse)
+                    .tag("service", serviceId)
+                    .register(meterRegistry);
+        }
+
+        Timer waitTimer(Priority priority) {
+            return waitTimers.get(priority);
+        }
+    }
+
+}
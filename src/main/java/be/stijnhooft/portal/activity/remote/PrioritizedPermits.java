@@ -0,0 +1,116 @@
+package be.stijnhooft.portal.activity.remote;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed number of permits, handed out to interactive callers first.
+ *
+ * A background caller only gets a permit when no interactive caller is waiting,
+ * and background callers never hold more than a part of the permits, so that an interactive caller can start right away.
+ */
+public class PrioritizedPermits {
+
+    private final int permits;
+    private final int backgroundPermits;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition interactiveTurn = lock.newCondition();
+    private final Condition backgroundTurn = lock.newCondition();
+
+    // changed while holding the lock, volatile to be read by gauges
+    private volatile int inUse;
+    private volatile int backgroundInUse;
+    private volatile int waitingInteractive;
+    private volatile int waitingBackground;
+
+    /**
+     * @param backgroundPermits the maximum number of permits that are held by background callers at the same time
+     */
+    public PrioritizedPermits(int permits, int backgroundPermits) {
+        if (permits < 1 || backgroundPermits < 1 || backgroundPermits > permits) {
+            throw new IllegalArgumentException("Expected 1 <= background permits <= permits");
+        }
+        this.permits = permits;
+        this.backgroundPermits = backgroundPermits;
+    }
+
+    /**
+     * @return true when a permit has been acquired, and has to be released with {@link #release(Priority)} afterwards.
+     * False when no permit became available within the timeout.
+     */
+    public boolean tryAcquire(Priority priority, long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            if (priority == Priority.INTERACTIVE) {
+                waitingInteractive++;
+                try {
+                    while (inUse >= permits) {
+                        if (remaining <= 0) {
+                            return false;
+                        }
+                        remaining = interactiveTurn.awaitNanos(remaining);
+                    }
+                } finally {
+                    waitingInteractive--;
+                }
+            } else {
+                waitingBackground++;
+                try {
+                    while (inUse >= permits || backgroundInUse >= backgroundPermits || waitingInteractive > 0) {
+                        if (remaining <= 0) {
+                            return false;
+                        }
+                        remaining = backgroundTurn.awaitNanos(remaining);
+                    }
+                } finally {
+                    waitingBackground--;
+                }
+                backgroundInUse++;
+            }
+            inUse++;
+            return true;
+        } finally {
+            // Whether this caller got a permit or gave up, a caller that waited behind it might be able to go now.
+            // After an acquire this is needed as well: releases that happen close together can signal this caller
+            // more than once, while only one signal wakes it up.
+            signalNext();
+            lock.unlock();
+        }
+    }
+
+    public void release(Priority priority) {
+        lock.lock();
+        try {
+            inUse--;
+            if (priority == Priority.BACKGROUND) {
+                backgroundInUse--;
+            }
+            signalNext();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaiting(Priority priority) {
+        return priority == Priority.INTERACTIVE ? waitingInteractive : waitingBackground;
+    }
+
+    public int getInUse() {
+        return inUse;
+    }
+
+    private void signalNext() {
+        if (inUse >= permits) {
+            return;
+        }
+        if (waitingInteractive > 0) {
+            interactiveTurn.signal();
+        } else if (waitingBackground > 0) {
+            backgroundTurn.signal();
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+package be.stijnhooft.portal.activity.remote;
+
+import java.util.function.Supplier;
+
+/**
+ * Priority of the calls to other services that are made by the current thread.
+ *
+ * Calls are interactive, unless the thread runs background work (schedulers, prefetching, imports) with {@link #BACKGROUND}.
+ * The priority is kept in a thread local: work that is handed over to another thread should be wrapped with {@link #propagate}.
+ */
+public enum Priority {
+
+    /** a user is waiting for the result **/
+    INTERACTIVE,
+
+    /** nobody is waiting for the result, the call gets the capacity that the interactive calls leave **/
+    BACKGROUND;
+
+    private static final ThreadLocal<Priority> CURRENT = ThreadLocal.withInitial(() -> INTERACTIVE);
+
+    public static Priority current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return the most urgent of both priorities
+     */
+    public static Priority highest(Priority priority1, Priority priority2) {
+        return priority1.compareTo(priority2) <= 0 ? priority1 : priority2;
+    }
+
+    /**
+     * Wraps work that will be executed by another thread, so that it gets the priority of the current thread.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> work) {
+        var priority = current();
+        return () -> priority.call(work);
+    }
+
+    /**
+     * Executes the work in the current thread, with this priority.
+     */
+    public <T> T call(Supplier<T> work) {
+        var previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return work.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Executes the work in the current thread, with this priority.
+     */
+    public void run(Runnable work) {
+        call(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+}
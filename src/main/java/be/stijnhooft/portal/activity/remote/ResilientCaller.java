@@ -0,0 +1,243 @@
+package be.stijnhooft.portal.activity.remote;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Calls another service through the {@link ServiceInstanceBalancer}, protected by:
+ * <ul>
+ *     <li>a circuit breaker per service: when the service keeps failing, calls fail fast with a {@link CircuitBreakerOpenException}</li>
+ *     <li>hedging: when a call takes longer than the 95th percentile of the latency, a second call is sent to another instance,
+ *     and the first successful answer is used</li>
+ *     <li>a retry: a call that failed is retried once on another instance</li>
+ *     <li>a retry budget per service, that limits the number of hedged calls and retries</li>
+ * </ul>
+ *
+ * Every call, including hedged calls and retries, gets a permit of the {@link OutboundLanes} first, with the {@link Priority} of the caller.
+ *
+ * Errors caused by the request (4xx) or by a lack of permits are not retried, and do not count as a failure of the service.
+ */
+@Slf4j
+@Component
+public class ResilientCaller {
+
+    private final ServiceInstanceBalancer serviceInstanceBalancer;
+    private final OutboundLanes outboundLanes;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+    private final Map<String, ServiceResilience> resiliencePerService = new ConcurrentHashMap<>();
+
+    private final int failureRateThreshold;
+    private final int windowSize;
+    private final int minimumNumberOfCalls;
+    private final long openDuration;
+    private final boolean hedging;
+    private final long defaultHedgeDelay;
+    private final long minimumHedgeDelay;
+    private final double retryBudgetRatio;
+    private final double retryBudgetMaxTokens;
+
+    public ResilientCaller(ServiceInstanceBalancer serviceInstanceBalancer, OutboundLanes outboundLanes, MeterRegistry meterRegistry,
+                           @Value("${activity.remote.circuit-breaker.failure-rate-threshold:50}") int failureRateThreshold,
+                           @Value("${activity.remote.circuit-breaker.window-size:20}") int windowSize,
+                           @Value("${activity.remote.circuit-breaker.minimum-number-of-calls:10}") int minimumNumberOfCalls,
+                           @Value("${activity.remote.circuit-breaker.open-duration-ms:10000}") long openDuration,
+                           @Value("${activity.remote.hedging.enabled:true}") boolean hedging,
+                           @Value("${activity.remote.hedging.default-delay-ms:500}") long defaultHedgeDelay,
+                           @Value("${activity.remote.hedging.minimum-delay-ms:50}") long minimumHedgeDelay,
+                           @Value("${activity.remote.retry-budget.ratio:0.1}") double retryBudgetRatio,
+                           @Value("${activity.remote.retry-budget.max-tokens:10}") double retryBudgetMaxTokens,
+                           @Value("${activity.remote.threads:32}") int threads) {
+        this.serviceInstanceBalancer = serviceInstanceBalancer;
+        this.outboundLanes = outboundLanes;
+        this.meterRegistry = meterRegistry;
+        this.failureRateThreshold = failureRateThreshold;
+        this.windowSize = windowSize;
+        this.minimumNumberOfCalls = minimumNumberOfCalls;
+        this.openDuration = openDuration;
+        this.hedging = hedging;
+        this.defaultHedgeDelay = defaultHedgeDelay;
+        this.minimumHedgeDelay = minimumHedgeDelay;
+        this.retryBudgetRatio = retryBudgetRatio;
+        this.retryBudgetMaxTokens = retryBudgetMaxTokens;
+
+        // when all threads are busy, the caller makes the call itself, without hedging
+        var threadNumber = new AtomicInteger();
+        var threadPoolExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> new Thread(runnable, "remote-call-" + threadNumber.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        this.executor = threadPoolExecutor;
+    }
+
+    /**
+     * @param call gets the base url of the chosen instance, ending with a "/"
+     * @throws CircuitBreakerOpenException when the service is not called, because its circuit breaker is open
+     */
+    public <T> T call(String serviceId, Function<String, T> call) {
+        var resilience = resilienceOf(serviceId);
+        if (!resilience.circuitBreaker.tryAcquire()) {
+            resilience.rejected.increment();
+            throw new CircuitBreakerOpenException(serviceId);
+        }
+        resilience.retryBudget.deposit();
+
+        try {
+            T result = callWithHedging(serviceId, resilience, call);
+            resilience.circuitBreaker.onSuccess();
+            return result;
+        } catch (RuntimeException e) {
+            if (e instanceof OutboundCapacityExceededException) {
+                // the service has not been called, so this says nothing about its health
+                resilience.circuitBreaker.onNotCalled();
+            } else if (isFailureOfService(e)) {
+                resilience.circuitBreaker.onFailure();
+            } else {
+                resilience.circuitBreaker.onSuccess();
+            }
+            throw e;
+        }
+    }
+
+    private <T> T callWithHedging(String serviceId, ServiceResilience resilience, Function<String, T> call) {
+        var primaryInstance = serviceInstanceBalancer.choose(serviceId);
+        var primaryCall = submit(resilience, primaryInstance, call);
+        long hedgeDelay = Math.max(minimumHedgeDelay, resilience.latencyTracker.p95(defaultHedgeDelay));
+
+        try {
+            return primaryCall.get(hedgeDelay, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (!hedging || !resilience.retryBudget.tryWithdraw()) {
+                return join(primaryCall);
+            }
+            log.debug("Call to {} takes longer than {} ms, sending a hedged call", serviceId, hedgeDelay);
+            resilience.hedged.increment();
+            var hedgedCall = submit(resilience, serviceInstanceBalancer.choose(serviceId, primaryInstance), call);
+            return join(firstSuccessful(primaryCall, hedgedCall));
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (isFailureOfService(cause) && resilience.retryBudget.tryWithdraw()) {
+                log.info("Call to {} failed, retrying on another instance", serviceId, cause);
+                resilience.retried.increment();
+                return join(submit(resilience, serviceInstanceBalancer.choose(serviceId, primaryInstance), call));
+            }
+            throw asRuntimeException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calling " + serviceId, e);
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(ServiceResilience resilience, ServiceInstance instance, Function<String, T> call) {
+        // the time spent waiting for a permit is not part of the latency of the service.
+        // Only successful calls are recorded: a call that fails fast would lower the 95th percentile, and hedge everything else too early.
+        return CompletableFuture.supplyAsync(Priority.propagate(() -> outboundLanes.call(resilience.serviceId, () -> {
+            long start = System.currentTimeMillis();
+            T result = serviceInstanceBalancer.call(instance, call);
+            resilience.latencyTracker.record(System.currentTimeMillis() - start);
+            return result;
+        })), executor);
+    }
+
+    private <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T> call1, CompletableFuture<T> call2) {
+        var result = new CompletableFuture<T>();
+        var remainingCalls = new AtomicInteger(2);
+        for (CompletableFuture<T> call : List.of(call1, call2)) {
+            call.whenComplete((value, throwable) -> {
+                if (throwable == null) {
+                    result.complete(value);
+                } else if (remainingCalls.decrementAndGet() == 0) {
+                    result.completeExceptionally(throwable);
+                }
+            });
+        }
+        return result;
+    }
+
+    private <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw asRuntimeException(e.getCause());
+        }
+    }
+
+    private RuntimeException asRuntimeException(Throwable throwable) {
+        if (throwable instanceof CompletionException && throwable.getCause() != null) {
+            return asRuntimeException(throwable.getCause());
+        } else if (throwable instanceof RuntimeException) {
+            return (RuntimeException) throwable;
+        } else {
+            return new IllegalStateException(throwable);
+        }
+    }
+
+    private boolean isFailureOfService(Throwable throwable) {
+        return !(throwable instanceof HttpClientErrorException)
+                && !(throwable instanceof OutboundCapacityExceededException);
+    }
+
+    private ServiceResilience resilienceOf(String serviceId) {
+        return resiliencePerService.computeIfAbsent(serviceId, ServiceResilience::new);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private class ServiceResilience {
+
+        private final String serviceId;
+        private final CircuitBreaker circuitBreaker;
+        private final RetryBudget retryBudget;
+        private final LatencyTracker latencyTracker;
+        private final Counter rejected;
+        private final Counter hedged;
+        private final Counter retried;
+
+        ServiceResilience(String serviceId) {
+            this.serviceId = serviceId;
+            this.circuitBreaker = new CircuitBreaker(serviceId, failureRateThreshold, windowSize, minimumNumberOfCalls, openDuration, Clock.systemUTC());
+            this.retryBudget = new RetryBudget(retryBudgetRatio, retryBudgetMaxTokens);
+            this.latencyTracker = new LatencyTracker(200);
+            this.rejected = counter(serviceId, "rejected");
+            this.hedged = counter(serviceId, "hedged");
+            this.retried = counter(serviceId, "retried");
+            Gauge.builder("activity.remote.circuit-breaker.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                    .description("0 = closed, 1 = open, 2 = half open")
+                    .tag("service", serviceId)
+                    .register(meterRegistry);
+        }
+
+        private Counter counter(String serviceId, String outcome) {
+            return Counter.builder("activity.remote.calls")
+                    .tag("service", serviceId)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
+
+}
@@ -0,0 +1,37 @@
+package be.stijnhooft.portal.activity.remote;
+
+/**
+ * Limits retries and hedged requests to a share of the normal requests,
+ * so that a struggling service does not get extra load from retries on top of its normal load.
+ *
+ * Every request deposits a fraction of a token, every retry withdraws a whole token.
+ */
+public class RetryBudget {
+
+    private final double depositPerRequest;
+    private final double maxTokens;
+    private double tokens;
+
+    /**
+     * @param depositPerRequest for example 0.1, to allow one retry per 10 requests
+     * @param maxTokens how many retries can be saved up
+     */
+    public RetryBudget(double depositPerRequest, double maxTokens) {
+        this.depositPerRequest = depositPerRequest;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+    public synchronized void deposit() {
+        tokens = Math.min(maxTokens, tokens + depositPerRequest);
+    }
+
+    public synchronized boolean tryWithdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+}
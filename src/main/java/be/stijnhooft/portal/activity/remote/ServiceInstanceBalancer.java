@@ -0,0 +1,178 @@
+package be.stijnhooft.portal.activity.remote;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads calls to another service over all of its instances.
+ *
+ * For every call, two random instances are compared, and the one with the lowest load is chosen ("power of two choices").
+ * The load of an instance is the number of calls that are still running, weighted by its recent latency
+ * (an exponentially weighted moving average).
+ * A call that fails counts as a call that took at least the failure penalty (by default the read timeout),
+ * so that an instance that fails fast does not look like the fastest one.
+ *
+ * The instances of a service are asked to the discovery client on first use, and refreshed in the background.
+ */
+@Slf4j
+@Component
+public class ServiceInstanceBalancer {
+
+    private final DiscoveryClient discoveryClient;
+    private final double latencyWeight;
+    private final long failurePenalty;
+
+    private final Map<String, List<ServiceInstance>> instancesPerService = new ConcurrentHashMap<>();
+    private final Map<String, InstanceStatistics> statisticsPerInstance = new ConcurrentHashMap<>();
+
+    public ServiceInstanceBalancer(DiscoveryClient discoveryClient,
+                                   @Value("${activity.remote.balancer.latency-weight:0.2}") double latencyWeight,
+                                   @Value("${activity.remote.balancer.failure-penalty-ms:${activity.http.read-timeout-ms:10000}}") long failurePenaltyInMs) {
+        this.discoveryClient = discoveryClient;
+        this.latencyWeight = latencyWeight;
+        this.failurePenalty = TimeUnit.MILLISECONDS.toNanos(failurePenaltyInMs);
+    }
+
+    /**
+     * Calls an instance of the service.
+     *
+     * @param call gets the base url of the chosen instance, ending with a "/"
+     */
+    public <T> T call(String serviceId, Function<String, T> call) {
+        return call(choose(serviceId), call);
+    }
+
+    /**
+     * Calls the provided instance of a service, keeping track of its load.
+     *
+     * @param call gets the base url of the instance, ending with a "/"
+     */
+    public <T> T call(ServiceInstance instance, Function<String, T> call) {
+        var statistics = statisticsOf(instance);
+        statistics.inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            var result = call.apply(instance.getUri().toString() + "/");
+            failed = false;
+            return result;
+        } catch (HttpClientErrorException e) {
+            // the instance answered, the request was wrong
+            failed = false;
+            throw e;
+        } finally {
+            statistics.inFlight.decrementAndGet();
+            long latency = System.nanoTime() - start;
+            statistics.record(failed ? Math.max(latency, failurePenalty) : latency);
+        }
+    }
+
+    public ServiceInstance choose(String serviceId) {
+        return choose(serviceId, null);
+    }
+
+    /**
+     * @param excluded instance that should not be chosen, unless it is the only one. Can be null.
+     */
+    public ServiceInstance choose(String serviceId, ServiceInstance excluded) {
+        var instances = instancesOf(serviceId);
+        if (instances.isEmpty()) {
+            throw new IllegalStateException("No instance of " + serviceId + " registered with Eureka");
+        }
+
+        var candidates = excluded == null || instances.size() == 1
+                ? instances
+                : instances.stream()
+                        .filter(instance -> !sameInstance(instance, excluded))
+                        .collect(Collectors.toList());
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+
+        var random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+
+        var instance1 = candidates.get(first);
+        var instance2 = candidates.get(second);
+        return statisticsOf(instance1).load() <= statisticsOf(instance2).load() ? instance1 : instance2;
+    }
+
+    @Scheduled(fixedDelayString = "${activity.remote.balancer.refresh-ms:30000}", initialDelayString = "${activity.remote.balancer.refresh-ms:30000}")
+    public void refresh() {
+        for (String serviceId : instancesPerService.keySet()) {
+            try {
+                instancesPerService.put(serviceId, discover(serviceId));
+            } catch (RuntimeException e) {
+                log.warn("Could not refresh the instances of {}, keeping the known instances", serviceId, e);
+            }
+        }
+
+        // forget the statistics of instances that are gone
+        var knownUris = instancesPerService.values()
+                .stream()
+                .flatMap(List::stream)
+                .map(instance -> instance.getUri().toString())
+                .collect(Collectors.toSet());
+        statisticsPerInstance.keySet().retainAll(knownUris);
+    }
+
+    private List<ServiceInstance> instancesOf(String serviceId) {
+        var instances = instancesPerService.get(serviceId);
+        if (instances == null || instances.isEmpty()) {
+            // unknown service, or no instances at last refresh: ask discovery now
+            instances = discover(serviceId);
+            instancesPerService.put(serviceId, instances);
+        }
+        return instances;
+    }
+
+    private List<ServiceInstance> discover(String serviceId) {
+        var instances = discoveryClient.getInstances(serviceId);
+        return instances == null ? List.of() : List.copyOf(instances);
+    }
+
+    private InstanceStatistics statisticsOf(ServiceInstance instance) {
+        return statisticsPerInstance.computeIfAbsent(instance.getUri().toString(), uri -> new InstanceStatistics());
+    }
+
+    private boolean sameInstance(ServiceInstance instance1, ServiceInstance instance2) {
+        return instance1.getUri().equals(instance2.getUri());
+    }
+
+    private class InstanceStatistics {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        /** moving average of the latency, in nanos. 0 when no call has been made yet, so that new instances get tried. **/
+        private volatile double averageLatency;
+
+        void record(long latency) {
+            synchronized (this) {
+                averageLatency = averageLatency == 0 ? latency : latencyWeight * latency + (1 - latencyWeight) * averageLatency;
+            }
+        }
+
+        double load() {
+            return (inFlight.get() + 1) * averageLatency;
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+package be.stijnhooft.portal.activity.remote;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Makes sure that a key is looked up only once at a time.
+ *
+ * When a lookup of a key is already in flight, a caller that needs the same key waits for that lookup
+ * and shares its result, instead of starting a lookup of its own.
+ * A caller that needs several keys only loads the keys that nobody is loading yet, in one call.
+ *
+ * A caller only joins a lookup that runs with the same or a more urgent {@link Priority}:
+ * an interactive caller does not wait for a lookup of background work, which waits behind every interactive call.
+ * It starts a lookup of its own instead, which the next callers of that key join.
+ *
+ * The number of loaded and coalesced keys are counted in activity.remote.lookups, per lookup name.
+ * activity.remote.lookups.coalescing.ratio is the share of keys that did not need a lookup of their own.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter loaded;
+    private final Counter coalesced;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.loaded = Counter.builder("activity.remote.lookups")
+                .tag("lookup", name)
+                .tag("outcome", "loaded")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("activity.remote.lookups")
+                .tag("lookup", name)
+                .tag("outcome", "coalesced")
+                .register(meterRegistry);
+        Gauge.builder("activity.remote.lookups.coalescing.ratio", this, SingleFlight::coalescingRatio)
+                .tag("lookup", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param loader loads the values of the keys that are not in flight yet. Keys without a value can be left out of the result.
+     * @return the value per key. Keys without a value are left out.
+     */
+    public Map<K, V> getAll(Collection<K> keys, Function<Set<K>, Map<K, V>> loader) {
+        var priority = Priority.current();
+        var flights = new HashMap<K, Flight<V>>();
+        var keysToLoad = new LinkedHashSet<K>();
+        for (K key : new LinkedHashSet<>(keys)) {
+            var flight = new Flight<V>(priority);
+            var joinedFlight = inFlight.compute(key, (existingKey, existingFlight) ->
+                    existingFlight == null || existingFlight.isLessUrgentThan(priority) ? flight : existingFlight);
+            if (joinedFlight == flight) {
+                keysToLoad.add(key);
+            }
+            flights.put(key, joinedFlight);
+        }
+
+        loaded.increment(keysToLoad.size());
+        coalesced.increment(flights.size() - keysToLoad.size());
+
+        if (!keysToLoad.isEmpty()) {
+            load(keysToLoad, flights, loader);
+        }
+
+        var result = new HashMap<K, V>();
+        flights.forEach((key, flight) -> {
+            var value = join(flight.future);
+            if (value != null) {
+                result.put(key, value);
+            }
+        });
+        return result;
+    }
+
+    private void load(Set<K> keysToLoad, Map<K, Flight<V>> flights, Function<Set<K>, Map<K, V>> loader) {
+        try {
+            var values = loader.apply(keysToLoad);
+            for (K key : keysToLoad) {
+                flights.get(key).future.complete(values.get(key));
+            }
+        } catch (RuntimeException | Error e) {
+            for (K key : keysToLoad) {
+                flights.get(key).future.completeExceptionally(e);
+            }
+            throw e;
+        } finally {
+            for (K key : keysToLoad) {
+                // only removes the lookup when it has not been replaced by a more urgent one
+                inFlight.remove(key, flights.get(key));
+            }
+        }
+    }
+
+    private V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private double coalescingRatio() {
+        double total = loaded.count() + coalesced.count();
+        return total == 0 ? 0 : coalesced.count() / total;
+    }
+
+    /**
+     * A lookup of one key, that is in flight.
+     */
+    private static class Flight<V> {
+
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        private final Priority priority;
+
+        Flight(Priority priority) {
+            this.priority = priority;
+        }
+
+        boolean isLessUrgentThan(Priority otherPriority) {
+            return Priority.highest(priority, otherPriority) != priority;
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package be.stijnhooft.portal.activity.remote;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection pool for outbound calls, that measures how long a request waits for a connection.
+ * A growing wait time means that the pool is too small for the load, or that a remote service became slow.
+ */
+public class TimedPoolingConnectionManager extends PoolingHttpClientConnectionManager {
+
+    private final MeterRegistry meterRegistry;
+
+    /** per route, so that the registry is not searched for every connection request **/
+    private final Map<String, Timer> waitTimers = new ConcurrentHashMap<>();
+
+    public TimedPoolingConnectionManager(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        var connectionRequest = super.requestConnection(route, state);
+        var waitTimer = waitTimers.computeIfAbsent(route.getTargetHost().toHostString(), this::waitTimer);
+
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit timeUnit) throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                long start = System.nanoTime();
+                try {
+                    return connectionRequest.get(timeout, timeUnit);
+                } finally {
+                    waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return connectionRequest.cancel();
+            }
+        };
+    }
+
+    private Timer waitTimer(String route) {
+        return Timer.builder("activity.http.pool.wait")
+                .description("Time spent waiting for a pooled outbound connection")
+                .tag("route", route)
+                .register(meterRegistry);
+    }
+
+}
@@ -1,12 +1,29 @@
 package be.stijnhooft.portal.activity.repositories;
 
 import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.domain.ActivityVersion;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-public interface ActivityRepository extends MongoRepository<Activity, String> {
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface ActivityRepository extends MongoRepository<Activity, String>, ActivityRepositoryCustom {
 
     Page<Activity> findByNameContainingIgnoreCase(String filter, Pageable pageable);
 
-}
\ No newline at end of file
+    /**
+     * Reads all activities with a Mongo cursor, so that only one batch of activities is kept in memory at a time.
+     * The stream must be closed after use.
+     */
+    @Meta(cursorBatchSize = 500)
+    Stream<Activity> streamAllBy();
+
+    /**
+     * Reads the id and version of all activities, without the rest of the documents.
+     */
+    List<ActivityVersion> findVersionsBy();
+
+}
@@ -0,0 +1,21 @@
+package be.stijnhooft.portal.activity.repositories;
+
+import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.domain.BulkImportResult;
+
+import java.util.Collection;
+
+public interface ActivityRepositoryCustom {
+
+    /**
+     * Writes a batch of activities in one round trip to the database.
+     * <ul>
+     *     <li>Activities without a version are inserted. When an activity with the same id already exists, it is reported as a conflict.</li>
+     *     <li>Activities with a version replace the stored activity, but only when the stored version is still the same.
+     *     When the stored activity has another version, the activity is reported as a conflict.
+     *     When there is no stored activity with that id, the activity is inserted, so that an export can be imported into an empty database.</li>
+     * </ul>
+     */
+    BulkImportResult bulkUpsert(Collection<Activity> activities);
+
+}
@@ -0,0 +1,64 @@
+package be.stijnhooft.portal.activity.repositories;
+
+import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.domain.BulkImportResult;
+import com.mongodb.bulk.BulkWriteResult;
+import lombok.AllArgsConstructor;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Collection;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@AllArgsConstructor
+public class ActivityRepositoryImpl implements ActivityRepositoryCustom {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public BulkImportResult bulkUpsert(Collection<Activity> activities) {
+        if (activities.isEmpty()) {
+            return new BulkImportResult(0, 0);
+        }
+
+        var bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Activity.class);
+
+        for (Activity activity : activities) {
+            if (activity.getVersion() == null) {
+                activity.setVersion(0);
+                bulkOperations.insert(activity);
+            } else {
+                // when the activity does not exist yet, the upsert inserts it (restoring a backup, migrating to a new database).
+                // When it exists with another version, the upsert tries to insert a second document with the same id, which is a conflict.
+                var query = Query.query(where("id").is(activity.getId()).and("version").is(activity.getVersion()));
+                activity.setVersion(activity.getVersion() + 1);
+                bulkOperations.replaceOne(query, activity, FindAndReplaceOptions.options().upsert());
+            }
+        }
+
+        try {
+            var result = bulkOperations.execute();
+            return new BulkImportResult(written(result), 0);
+        } catch (BulkOperationException ex) {
+            // an unordered bulk write continues after an error, so the other activities have been written
+            var duplicates = ex.getErrors().stream()
+                    .filter(error -> error.getCode() == DUPLICATE_KEY)
+                    .count();
+            if (duplicates != ex.getErrors().size()) {
+                throw ex;
+            }
+            return new BulkImportResult(written(ex.getResult()), duplicates);
+        }
+    }
+
+    private long written(BulkWriteResult result) {
+        return result.getInsertedCount() + result.getMatchedCount() + result.getUpserts().size();
+    }
+
+}
@@ -0,0 +1,8 @@
+package be.stijnhooft.portal.activity.repositories;
+
+import be.stijnhooft.portal.activity.domain.WeekendSuggestion;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface WeekendSuggestionRepository extends MongoRepository<WeekendSuggestion, String>, WeekendSuggestionRepositoryCustom {
+
+}
@@ -0,0 +1,16 @@
+package be.stijnhooft.portal.activity.repositories;
+
+import be.stijnhooft.portal.activity.domain.WeekendSuggestion;
+
+public interface WeekendSuggestionRepositoryCustom {
+
+    /**
+     * Stores the suggestion, unless the stored suggestion for the same location has been computed later.
+     * Every instance refreshes the suggestions, so this keeps an instance that finishes late from
+     * overwriting the result of an instance that started later, with more recent forecasts and activities.
+     *
+     * @return true when the suggestion has been stored, false when a more recent suggestion was already stored
+     */
+    boolean saveIfNewer(WeekendSuggestion weekendSuggestion);
+
+}
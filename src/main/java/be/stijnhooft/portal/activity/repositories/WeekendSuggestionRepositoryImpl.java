@@ -0,0 +1,32 @@
+package be.stijnhooft.portal.activity.repositories;
+
+import be.stijnhooft.portal.activity.domain.WeekendSuggestion;
+import lombok.AllArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@AllArgsConstructor
+public class WeekendSuggestionRepositoryImpl implements WeekendSuggestionRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean saveIfNewer(WeekendSuggestion weekendSuggestion) {
+        var query = Query.query(where("location").is(weekendSuggestion.getLocation())
+                .orOperator(where("computedAt").lt(weekendSuggestion.getComputedAt()),
+                        where("computedAt").is(null)));
+        try {
+            mongoTemplate.findAndReplace(query, weekendSuggestion, FindAndReplaceOptions.options().upsert());
+            return true;
+        } catch (DuplicateKeyException e) {
+            // the stored suggestion did not match because it is more recent, so the upsert tried to insert a second one
+            return false;
+        }
+    }
+
+}
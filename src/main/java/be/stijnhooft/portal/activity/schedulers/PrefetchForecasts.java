@@ -0,0 +1,90 @@
+package be.stijnhooft.portal.activity.schedulers;
+
+import be.stijnhooft.portal.activity.catalog.ActivityCatalog;
+import be.stijnhooft.portal.activity.catalog.ActivityColumns;
+import be.stijnhooft.portal.activity.remote.Priority;
+import be.stijnhooft.portal.activity.services.ForecastStore;
+import be.stijnhooft.portal.activity.services.WeatherService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Fetches the forecasts of every location that has an activity with weather conditions, ahead of time.
+ * This way, a search that takes the weather into account does not need to wait for the weather service.
+ */
+@Component
+@Slf4j
+@EnableScheduling
+@ConditionalOnProperty(value = "activity.forecasts.prefetch.enabled", havingValue = "true", matchIfMissing = true)
+public class PrefetchForecasts {
+
+    private final ActivityCatalog activityCatalog;
+    private final WeatherService weatherService;
+    private final ForecastStore forecastStore;
+    private final int horizonInDays;
+    private final int chunkSize;
+
+    public PrefetchForecasts(ActivityCatalog activityCatalog, WeatherService weatherService, ForecastStore forecastStore,
+                             @Value("${activity.forecasts.prefetch.horizon-days:7}") int horizonInDays,
+                             @Value("${activity.forecasts.prefetch.chunk-size:50}") int chunkSize) {
+        this.activityCatalog = activityCatalog;
+        this.weatherService = weatherService;
+        this.forecastStore = forecastStore;
+        this.horizonInDays = horizonInDays;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(fixedDelayString = "${activity.forecasts.prefetch.interval-ms:3600000}", initialDelayString = "${activity.forecasts.prefetch.initial-delay-ms:30000}")
+    public void prefetch() {
+        // searches go first, prefetching uses the capacity that is left
+        Priority.BACKGROUND.run(this::prefetchAllLocations);
+    }
+
+    private void prefetchAllLocations() {
+        // use the location keys of the catalog columns, which are the keys the weather filter looks up
+        var columns = activityCatalog.snapshot().columns();
+        var locationIds = columns.locationIds();
+        var weatherProfileIds = columns.weatherProfileIds();
+        var locations = IntStream.range(0, columns.size())
+                .filter(ordinal -> locationIds[ordinal] != ActivityColumns.NONE)
+                .filter(ordinal -> weatherProfileIds[ordinal] != ActivityColumns.NONE)
+                .map(ordinal -> locationIds[ordinal])
+                .distinct()
+                .mapToObj(columns::location)
+                .collect(Collectors.toList());
+
+        var startDate = LocalDate.now();
+        var endDate = startDate.plusDays(horizonInDays);
+        log.info("Prefetching forecasts for {} locations from {} until {}", locations.size(), startDate, endDate);
+
+        for (List<String> chunk : chunk(locations)) {
+            try {
+                var forecasts = weatherService.findForecasts(chunk, startDate, endDate);
+                forecastStore.store(chunk, startDate, endDate, forecasts);
+            } catch (RuntimeException e) {
+                log.warn("Could not prefetch forecasts for {}", chunk, e);
+            }
+        }
+
+        forecastStore.retainOnly(locations);
+    }
+
+    private List<List<String>> chunk(List<String> locations) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < locations.size(); i += chunkSize) {
+            chunks.add(locations.subList(i, Math.min(i + chunkSize, locations.size())));
+        }
+        return chunks;
+    }
+
+}
@@ -0,0 +1,36 @@
+package be.stijnhooft.portal.activity.schedulers;
+
+import be.stijnhooft.portal.activity.remote.Priority;
+import be.stijnhooft.portal.activity.services.WeekendSuggestionService;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+@EnableScheduling
+@AllArgsConstructor
+public class RefreshWeekendSuggestions {
+
+    private final WeekendSuggestionService weekendSuggestionService;
+
+    /**
+     * Forecasts get more accurate when the weekend comes closer, so the stored suggestions are recomputed regularly.
+     */
+    @Scheduled(cron = "${activity.suggestions.refresh-cron:0 0 */3 * * *}")
+    public void refreshForNewForecasts() {
+        log.info("Refreshing weekend suggestions with the latest forecasts.");
+        Priority.BACKGROUND.call(weekendSuggestionService::refresh);
+    }
+
+    /**
+     * Activity changes are batched: every minute, the suggestions are recomputed if at least one activity has changed.
+     */
+    @Scheduled(fixedDelayString = "${activity.suggestions.stale-check-ms:60000}", initialDelayString = "${activity.suggestions.stale-check-ms:60000}")
+    public void refreshForChangedActivities() {
+        Priority.BACKGROUND.run(weekendSuggestionService::refreshIfStale);
+    }
+
+}
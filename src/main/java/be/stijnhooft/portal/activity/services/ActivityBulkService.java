@@ -0,0 +1,98 @@
+package be.stijnhooft.portal.activity.services;
+
+import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.domain.BulkImportResult;
+import be.stijnhooft.portal.activity.messaging.ActivitiesChangedEvent;
+import be.stijnhooft.portal.activity.repositories.ActivityRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exports and imports the whole catalog as newline delimited JSON (one activity per line).
+ * Both directions are streamed: memory usage does not depend on the size of the catalog.
+ *
+ * Unlike {@link ActivityService#create(Activity)}, an import does not upload photos:
+ * activities with a new photo content are rejected, and can be created one by one instead.
+ * Photos that have already been uploaded (the photo field) are imported as they are.
+ */
+@Slf4j
+@Service
+public class ActivityBulkService {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    private final ActivityRepository activityRepository;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final int batchSize;
+
+    public ActivityBulkService(ActivityRepository activityRepository, ObjectMapper objectMapper,
+                               ApplicationEventPublisher applicationEventPublisher,
+                               @Value("${activity.bulk.batch-size:500}") int batchSize) {
+        this.activityRepository = activityRepository;
+        this.objectMapper = objectMapper;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.batchSize = batchSize;
+    }
+
+    public void export(OutputStream outputStream) throws IOException {
+        log.info("Exporting all activities");
+        long count = 0;
+        try (var activities = activityRepository.streamAllBy();
+             var writer = objectMapper.writerFor(Activity.class)
+                     .withRootValueSeparator("\n")
+                     .writeValues(outputStream)) {
+            var iterator = activities.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+                count++;
+                if (count % batchSize == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        log.info("Exported {} activities", count);
+    }
+
+    public BulkImportResult importActivities(InputStream inputStream) throws IOException {
+        log.info("Importing activities");
+        var result = new BulkImportResult(0, 0);
+        List<Activity> batch = new ArrayList<>(batchSize);
+
+        try (var activities = objectMapper.readerFor(Activity.class).<Activity>readValues(inputStream)) {
+            while (activities.hasNextValue()) {
+                var activity = activities.nextValue();
+                if (activity.getNewPhotoContent() != null) {
+                    log.warn("Not importing activity {} ({}), uploading a photo is not supported by an import", activity.getId(), activity.getName());
+                    result = result.add(new BulkImportResult(0, 0, 1));
+                    continue;
+                }
+
+                batch.add(activity);
+                if (batch.size() == batchSize) {
+                    result = result.add(activityRepository.bulkUpsert(batch));
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            result = result.add(activityRepository.bulkUpsert(batch));
+        }
+
+        if (result.getImported() > 0) {
+            applicationEventPublisher.publishEvent(new ActivitiesChangedEvent(List.of()));
+        }
+        log.info("Imported {} activities, {} conflicts, {} rejected", result.getImported(), result.getConflicts(), result.getRejected());
+        return result;
+    }
+
+}
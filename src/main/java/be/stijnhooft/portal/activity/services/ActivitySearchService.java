@@ -1,30 +1,64 @@
 package be.stijnhooft.portal.activity.services;
 
+import be.stijnhooft.portal.activity.catalog.ActivityCatalog;
+import be.stijnhooft.portal.activity.catalog.ActivityColumns;
 import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.domain.FoundActivity;
+import be.stijnhooft.portal.activity.domain.SearchResult;
 import be.stijnhooft.portal.activity.filters.ItemFilter;
 import be.stijnhooft.portal.activity.filters.ListFilter;
-import be.stijnhooft.portal.activity.repositories.ActivityRepository;
 import be.stijnhooft.portal.activity.searchparameters.SearchParameter;
-import lombok.AllArgsConstructor;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
-@AllArgsConstructor
 public class ActivitySearchService {
 
     private List<ItemFilter> itemFilters;
     private List<ListFilter> listFilters;
-    private final ActivityRepository activityRepository;
+    private final ActivityCatalog activityCatalog;
+    private final long defaultDeadline;
+    private final long minimumDeadline;
+    private final ExecutorService lookupExecutor;
+
+    public ActivitySearchService(List<ItemFilter> itemFilters, List<ListFilter> listFilters, ActivityCatalog activityCatalog,
+                                 @Value("${activity.search.deadline-ms:3000}") long defaultDeadline,
+                                 @Value("${activity.search.minimum-deadline-ms:50}") long minimumDeadline,
+                                 @Value("${activity.search.lookup-threads:32}") int lookupThreads) {
+        this.itemFilters = itemFilters;
+        this.listFilters = listFilters;
+        this.activityCatalog = activityCatalog;
+        this.defaultDeadline = defaultDeadline;
+        this.minimumDeadline = Math.min(minimumDeadline, defaultDeadline);
+
+        // when all threads are busy, the lookup is rejected and the filter degrades, instead of waiting past the deadline
+        var threadNumber = new AtomicInteger();
+        var threadPoolExecutor = new ThreadPoolExecutor(lookupThreads, lookupThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> new Thread(runnable, "search-lookup-" + threadNumber.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        this.lookupExecutor = threadPoolExecutor;
+    }
 
     @PostConstruct
     public void init() {
@@ -33,33 +67,123 @@ public class ActivitySearchService {
         listFilters = listFilters.stream().sorted(Comparator.comparingInt(ListFilter::cost)).collect(Collectors.toList());
     }
 
+    @PreDestroy
+    public void shutdown() {
+        lookupExecutor.shutdownNow();
+    }
+
     public Collection<Activity> find(@NonNull Collection<? extends SearchParameter> searchParameters) {
         log.info("Searching for activities with parameters {}", searchParameters);
 
-        var allActivities = activityRepository.findAll();
-        var filteredActivities = applyItemFilters(allActivities, searchParameters);
-        filteredActivities = applyListFilters(filteredActivities, searchParameters);
-        return filteredActivities;
+        return find(activityCatalog.snapshot().columns(), searchParameters);
     }
 
-    private Collection<Activity> applyItemFilters(Collection<Activity> activities, Collection<? extends SearchParameter> searchParameters) {
-        return activities
-                .stream()
-                .filter(activity -> appliesToAllSearchParameters(activity, searchParameters))
+    /**
+     * Searches within all activities, but returns what has been found when the deadline has passed.
+     * Activities of which a condition could not be checked in time are returned as well, with that condition marked as unknown.
+     *
+     * @param deadline in milliseconds, when null the default deadline is used.
+     *                 A deadline longer than the default deadline, or shorter than the minimum deadline, is clamped.
+     */
+    public SearchResult find(@NonNull Collection<? extends SearchParameter> searchParameters, Long deadline) {
+        log.info("Searching for activities with parameters {} and deadline {} ms", searchParameters, deadline);
+
+        var columns = activityCatalog.snapshot().columns();
+        var searchContext = SearchContext.withDeadline(deadline(deadline), lookupExecutor);
+        var candidates = find(columns, searchParameters, searchContext);
+        return toSearchResult(columns, candidates, searchContext);
+    }
+
+    /**
+     * Executes multiple searches at once, with one deadline for all of them.
+     * An item filter is evaluated only once for a search parameter that multiple searches have in common,
+     * and list filters can do the lookups of all searches in one go before they are applied to each search.
+     *
+     * @param searchParametersPerQuery the search parameters of every search
+     * @param deadline in milliseconds, when null the default deadline is used.
+     *                 A deadline longer than the default deadline, or shorter than the minimum deadline, is clamped.
+     * @return the result of every search, in the same order as the searches
+     */
+    public List<SearchResult> find(@NonNull List<? extends Collection<? extends SearchParameter>> searchParametersPerQuery, Long deadline) {
+        log.info("Searching for activities with {} sets of parameters {} and deadline {} ms", searchParametersPerQuery.size(), searchParametersPerQuery, deadline);
+
+        var columns = activityCatalog.snapshot().columns();
+        var batchContext = SearchContext.withDeadline(deadline(deadline), lookupExecutor);
+
+        var itemFilterResults = new HashMap<SearchParameter, BitSet>();
+        var candidatesPerQuery = searchParametersPerQuery.stream()
+                .map(searchParameters -> applyItemFilters(columns, searchParameters, itemFilterResults))
                 .collect(Collectors.toList());
+
+        prefetchListFilters(columns, searchParametersPerQuery, candidatesPerQuery, batchContext);
+
+        var searchResults = new ArrayList<SearchResult>(searchParametersPerQuery.size());
+        for (int i = 0; i < searchParametersPerQuery.size(); i++) {
+            var searchContext = batchContext.forQuery();
+            var candidates = applyListFilters(columns, candidatesPerQuery.get(i), searchParametersPerQuery.get(i), searchContext);
+            searchResults.add(toSearchResult(columns, candidates, searchContext));
+        }
+        return searchResults;
     }
 
+    /**
+     * The deadline is chosen by the client, but a client must not be able to hold a lookup thread longer than
+     * the default deadline, nor to make every lookup fail right away.
+     */
+    long deadline(Long requestedDeadline) {
+        if (requestedDeadline == null) {
+            return defaultDeadline;
+        }
+        return Math.max(minimumDeadline, Math.min(requestedDeadline, defaultDeadline));
+    }
 
-    private boolean appliesToAllSearchParameters(Activity activity, Collection<? extends SearchParameter> searchParameters) {
-        return searchParameters
-                .stream()
-                .allMatch(searchParameter -> applyItemFilterForSearchParameter(activity, searchParameter));
+    /**
+     * Searches within the provided activities, instead of within all activities.
+     */
+    public Collection<Activity> find(@NonNull Collection<Activity> activities, @NonNull Collection<? extends SearchParameter> searchParameters) {
+        return find(ActivityColumns.of(new ArrayList<>(activities)), searchParameters);
+    }
+
+    /**
+     * The filters work on a bitset of the ordinals of the activities in the columns.
+     * Only the activities that survive all filters are materialized, in the order of the columns.
+     */
+    private Collection<Activity> find(ActivityColumns columns, Collection<? extends SearchParameter> searchParameters) {
+        return columns.activities(find(columns, searchParameters, SearchContext.unbounded()));
     }
 
-    private boolean applyItemFilterForSearchParameter(Activity activity, SearchParameter searchParameter) {
-        return itemFilterFor(searchParameter)
-                .map(filter -> filter.apply(activity, searchParameter))
-                .orElse(true);
+    private BitSet find(ActivityColumns columns, Collection<? extends SearchParameter> searchParameters, SearchContext searchContext) {
+        var candidates = columns.all();
+        candidates = applyItemFilters(columns, candidates, searchParameters);
+        candidates = applyListFilters(columns, candidates, searchParameters, searchContext);
+        return candidates;
+    }
+
+    private BitSet applyItemFilters(ActivityColumns columns, BitSet candidates, Collection<? extends SearchParameter> searchParameters) {
+        for (SearchParameter searchParameter : searchParameters) {
+            var itemFilter = itemFilterFor(searchParameter);
+            if (itemFilter.isPresent() && !candidates.isEmpty()) {
+                candidates = itemFilter.get().apply(columns, candidates, searchParameter);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Applies the item filters of one search of a batch. The result of an item filter for a search parameter is evaluated
+     * on all activities and remembered, so that the other searches with the same parameter can reuse it.
+     */
+    private BitSet applyItemFilters(ActivityColumns columns, Collection<? extends SearchParameter> searchParameters,
+                                    Map<SearchParameter, BitSet> itemFilterResults) {
+        var candidates = columns.all();
+        for (SearchParameter searchParameter : searchParameters) {
+            var itemFilter = itemFilterFor(searchParameter);
+            if (itemFilter.isPresent() && !candidates.isEmpty()) {
+                candidates.and(itemFilterResults.computeIfAbsent(searchParameter,
+                        parameter -> itemFilter.get().apply(columns, columns.all(), parameter)));
+            }
+        }
+        return candidates;
     }
 
     private Optional<ItemFilter> itemFilterFor(SearchParameter searchParameter) {
@@ -69,18 +193,62 @@ public class ActivitySearchService {
                 .findFirst();
     }
 
-    private Collection<Activity> applyListFilters(Collection<Activity> activities, Collection<? extends SearchParameter> searchParameters) {
-        Collection<Activity> filteredActivities = activities;
+    private BitSet applyListFilters(ActivityColumns columns, BitSet candidates, Collection<? extends SearchParameter> searchParameters,
+                                    SearchContext searchContext) {
+        var listFilterApplications = new ArrayList<Map.Entry<ListFilter, SearchParameter>>();
         for (ListFilter listFilter : listFilters) {
-            var supportedSearchParameters = searchParameters.stream()
+            searchParameters.stream()
                     .filter(listFilter::supports)
-                    .collect(Collectors.toList());
-            for (SearchParameter searchParameter : supportedSearchParameters) {
-                filteredActivities = listFilter.apply(filteredActivities, searchParameter);
+                    .forEach(searchParameter -> listFilterApplications.add(Map.entry(listFilter, searchParameter)));
+        }
+
+        // every list filter gets an equal share of the time that is left when it starts
+        for (int i = 0; i < listFilterApplications.size(); i++) {
+            searchContext.startFilter(listFilterApplications.size() - i);
+            var listFilterApplication = listFilterApplications.get(i);
+            candidates = listFilterApplication.getKey().apply(columns, candidates, listFilterApplication.getValue(), searchContext);
+        }
+        return candidates;
+    }
+
+    /**
+     * Lets every list filter do the lookups of all searches of a batch in one go,
+     * for the activities that are left in each search after the item filters.
+     */
+    private void prefetchListFilters(ActivityColumns columns, List<? extends Collection<? extends SearchParameter>> searchParametersPerQuery,
+                                     List<BitSet> candidatesPerQuery, SearchContext batchContext) {
+        var prefetches = new ArrayList<Map.Entry<ListFilter, Map<SearchParameter, BitSet>>>();
+        for (ListFilter listFilter : listFilters) {
+            var candidatesPerParameter = new HashMap<SearchParameter, BitSet>();
+            for (int i = 0; i < searchParametersPerQuery.size(); i++) {
+                var candidates = candidatesPerQuery.get(i);
+                if (!candidates.isEmpty()) {
+                    searchParametersPerQuery.get(i).stream()
+                            .filter(listFilter::supports)
+                            .forEach(searchParameter -> candidatesPerParameter
+                                    .computeIfAbsent(searchParameter, parameter -> new BitSet(columns.size()))
+                                    .or(candidates));
+                }
+            }
+            if (!candidatesPerParameter.isEmpty()) {
+                prefetches.add(Map.entry(listFilter, candidatesPerParameter));
             }
         }
-        return filteredActivities;
+
+        // the prefetches get the same share of the deadline as a list filter, what is left goes to applying the filters per search
+        for (int i = 0; i < prefetches.size(); i++) {
+            batchContext.startFilter(prefetches.size() - i + 1);
+            var prefetch = prefetches.get(i);
+            prefetch.getKey().prefetch(columns, prefetch.getValue(), batchContext);
+        }
     }
 
+    private SearchResult toSearchResult(ActivityColumns columns, BitSet candidates, SearchContext searchContext) {
+        var foundActivities = new ArrayList<FoundActivity>(candidates.cardinality());
+        for (int ordinal = candidates.nextSetBit(0); ordinal >= 0; ordinal = candidates.nextSetBit(ordinal + 1)) {
+            foundActivities.add(new FoundActivity(columns.activity(ordinal), searchContext.unknownConditionsOf(ordinal)));
+        }
+        return new SearchResult(foundActivities, searchContext.degradedConditions());
+    }
 
 }
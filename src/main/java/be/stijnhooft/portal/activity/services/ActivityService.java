@@ -1,16 +1,20 @@
 package be.stijnhooft.portal.activity.services;
 
 import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.domain.SearchResult;
+import be.stijnhooft.portal.activity.messaging.ActivitiesChangedEvent;
 import be.stijnhooft.portal.activity.repositories.ActivityRepository;
 import be.stijnhooft.portal.activity.searchparameters.SearchParameter;
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Slf4j
@@ -21,11 +25,29 @@ public class ActivityService {
     private final ActivitySearchService activitySearchService;
     private final ActivityRepository activityRepository;
     private final ImageService imageService;
+    private final ApplicationEventPublisher applicationEventPublisher;
 
     public Collection<Activity> find(@NonNull Collection<? extends SearchParameter> searchParameters) {
         return activitySearchService.find(searchParameters);
     }
 
+    /**
+     * @param deadline in milliseconds, when null the default deadline is used
+     */
+    public SearchResult find(@NonNull Collection<? extends SearchParameter> searchParameters, Long deadline) {
+        return activitySearchService.find(searchParameters, deadline);
+    }
+
+    /**
+     * Executes multiple searches at once.
+     *
+     * @param deadline in milliseconds, when null the default deadline is used
+     * @return the result of every search, in the same order as the searches
+     */
+    public List<SearchResult> find(@NonNull List<? extends Collection<? extends SearchParameter>> searchParametersPerQuery, Long deadline) {
+        return activitySearchService.find(searchParametersPerQuery, deadline);
+    }
+
     public Page<Activity> find(PageRequest pageRequest, String filter) {
         if (filter == null) {
             return activityRepository.findAll(pageRequest);
@@ -47,6 +69,7 @@ public class ActivityService {
 
     public void delete(@NonNull String id) {
         activityRepository.deleteById(id);
+        applicationEventPublisher.publishEvent(new ActivitiesChangedEvent(List.of(id)));
     }
 
     public Optional<Activity> findById(@NonNull String id) {
@@ -81,6 +104,7 @@ public class ActivityService {
             imageService.delete(oldThumbnail);
         }
 
+        applicationEventPublisher.publishEvent(new ActivitiesChangedEvent(List.of(activity.getId())));
         return activity;
     }
 
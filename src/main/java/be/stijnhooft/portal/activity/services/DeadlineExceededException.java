@@ -0,0 +1,12 @@
+package be.stijnhooft.portal.activity.services;
+
+/**
+ * Thrown when a lookup of a search did not finish within the share of the deadline that the search reserved for it.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,108 @@
+package be.stijnhooft.portal.activity.services;
+
+import be.stijnhooft.portal.model.weather.Forecast;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Local copy of forecasts, filled in the background by the forecast prefetcher.
+ *
+ * For every location, the store remembers for which period forecasts have been fetched.
+ * A location is only served from the store when that period covers the requested period and the forecasts are recent enough.
+ * Otherwise, the caller needs to ask the weather service.
+ */
+@Component
+public class ForecastStore {
+
+    private final Map<String, StoredForecasts> forecastsPerLocation = new ConcurrentHashMap<>();
+    private final Duration maxAge;
+
+    public ForecastStore(@Value("${activity.forecasts.store.max-age-minutes:180}") long maxAgeInMinutes) {
+        this.maxAge = Duration.ofMinutes(maxAgeInMinutes);
+    }
+
+    /**
+     * Stores the forecasts that have been fetched for the provided locations and period.
+     * Locations without forecasts are stored as well: their weather is unknown for that period.
+     */
+    public void store(Collection<String> locations, LocalDate startDate, LocalDate endDate, Collection<Forecast> forecasts) {
+        var fetchedAt = LocalDateTime.now();
+        var forecastsByLocation = forecasts.stream()
+                .collect(Collectors.groupingBy(Forecast::getLocation));
+
+        for (String location : locations) {
+            var forecastsOfLocation = forecastsByLocation.getOrDefault(location, new ArrayList<>());
+            forecastsPerLocation.put(location, new StoredForecasts(startDate, endDate, fetchedAt, forecastsOfLocation));
+        }
+    }
+
+    /**
+     * @return for every location that can be served from the store, the forecasts within the requested period.
+     * Locations that cannot be served from the store are not included.
+     */
+    public Map<String, List<Forecast>> find(Collection<String> locations, LocalDate startDate, LocalDate endDate) {
+        return find(locations, startDate, endDate, LocalDateTime.now().minus(maxAge));
+    }
+
+    /**
+     * Like {@link #find(Collection, LocalDate, LocalDate)}, but also serves forecasts that are older than the max age.
+     * Meant for when the weather service cannot be reached: old forecasts are better than none.
+     */
+    public Map<String, List<Forecast>> findIncludingStale(Collection<String> locations, LocalDate startDate, LocalDate endDate) {
+        return find(locations, startDate, endDate, LocalDateTime.MIN);
+    }
+
+    private Map<String, List<Forecast>> find(Collection<String> locations, LocalDate startDate, LocalDate endDate, LocalDateTime oldestAllowed) {
+        var result = new HashMap<String, List<Forecast>>();
+
+        for (String location : locations) {
+            var storedForecasts = forecastsPerLocation.get(location);
+            if (storedForecasts != null && storedForecasts.covers(startDate, endDate) && storedForecasts.getFetchedAt().isAfter(oldestAllowed)) {
+                result.put(location, storedForecasts.between(startDate, endDate));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Forgets the forecasts of all locations that are not provided.
+     */
+    public void retainOnly(Collection<String> locations) {
+        forecastsPerLocation.keySet().retainAll(locations);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class StoredForecasts {
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final LocalDateTime fetchedAt;
+        private final List<Forecast> forecasts;
+
+        boolean covers(LocalDate requestedStartDate, LocalDate requestedEndDate) {
+            return !requestedStartDate.isBefore(startDate) && !requestedEndDate.isAfter(endDate);
+        }
+
+        List<Forecast> between(LocalDate requestedStartDate, LocalDate requestedEndDate) {
+            return forecasts.stream()
+                    .filter(forecast -> forecast.getDate() == null
+                            || (!forecast.getDate().isBefore(requestedStartDate) && !forecast.getDate().isAfter(requestedEndDate)))
+                    .collect(Collectors.toList());
+        }
+    }
+
+}
@@ -1,6 +1,7 @@
 package be.stijnhooft.portal.activity.services;
 
 
+import be.stijnhooft.portal.activity.remote.OutboundLanes;
 import be.stijnhooft.portal.model.image.ImageDto;
 import lombok.Getter;
 import lombok.NonNull;
@@ -27,16 +28,19 @@ import java.util.*;
 @Slf4j
 public class ImageService {
 
+    public static final String SERVICE_ID = "image";
     public static final String API_CONTEXT_ROOT = "api/";
     public static final String TRANSFORMATION_DEFINITION = "[{ \"label\": \"thumbnail\", \"transformations\": [{ \"name\": \"resize\", \"width\": \"300\", \"height\": \"300\", \"crop\": true}] }]";
 
     private final RestTemplate restTemplate;
+    private final OutboundLanes outboundLanes;
 
     @Getter
     private final String portalImageUrl;
 
-    public ImageService(RestTemplate restTemplate, @Value("${portal.image.url}") String portalImageUrl) {
+    public ImageService(RestTemplate restTemplate, OutboundLanes outboundLanes, @Value("${portal.image.url}") String portalImageUrl) {
         this.restTemplate = restTemplate;
+        this.outboundLanes = outboundLanes;
         this.portalImageUrl = portalImageUrl;
     }
 
@@ -55,8 +59,8 @@ public class ImageService {
         var url = portalImageUrl + API_CONTEXT_ROOT + "transform/";
         log.info("Creating thumbnail at " + url);
 
-        ResponseEntity<List<ImageDto>> response = restTemplate.exchange(url, HttpMethod.POST, new HttpEntity<>(requestBody), new ParameterizedTypeReference<>() {
-        });
+        ResponseEntity<List<ImageDto>> response = outboundLanes.call(SERVICE_ID, () -> restTemplate.exchange(url, HttpMethod.POST, new HttpEntity<>(requestBody), new ParameterizedTypeReference<List<ImageDto>>() {
+        }));
 
         return Optional.ofNullable(response.getBody())
                 .stream()
@@ -76,7 +80,10 @@ public class ImageService {
         try {
             var url = portalImageUrl + API_CONTEXT_ROOT + "remove/" + imageName;
             log.info("Deleting image at " + url);
-            restTemplate.delete(url);
+            outboundLanes.call(SERVICE_ID, () -> {
+                restTemplate.delete(url);
+                return null;
+            });
         } catch (HttpClientErrorException.NotFound ex)   {
             log.warn("Image microservice returns 404 when deleting image {}. Image might already have been deleted.", imageName);
         }
@@ -1,6 +1,6 @@
 package be.stijnhooft.portal.activity.services;
 
-import be.stijnhooft.portal.activity.repositories.ActivityRepository;
+import be.stijnhooft.portal.activity.catalog.ActivityCatalog;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -13,11 +13,11 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class LabelService {
 
-    private final ActivityRepository activityRepository;
+    private final ActivityCatalog activityCatalog;
 
     public List<String> findAll() {
         log.info("Finding all labels");
-        return activityRepository.findAll()
+        return activityCatalog.findAll()
                 .stream()
                 .flatMap(activity -> activity.getLabels().stream())
                 .distinct()
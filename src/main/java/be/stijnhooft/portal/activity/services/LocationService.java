@@ -1,11 +1,13 @@
 package be.stijnhooft.portal.activity.services;
 
+import be.stijnhooft.portal.activity.remote.MicroBatcher;
+import be.stijnhooft.portal.activity.remote.ResilientCaller;
+import be.stijnhooft.portal.activity.remote.SingleFlight;
 import be.stijnhooft.portal.model.location.Distance;
 import be.stijnhooft.portal.model.location.DistanceQuery;
-import lombok.AllArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
@@ -13,31 +15,91 @@ import org.springframework.web.util.UriComponentsBuilder;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
-@AllArgsConstructor
 public class LocationService {
 
     public static final String SERVICE_ID = "location";
 
     private final RestTemplate restTemplate;
-    private final DiscoveryClient discoveryClient;
+    private final ResilientCaller resilientCaller;
 
+    /**
+     * The distance between two places does not change, so known distances are kept.
+     * When the cache is full, the distance that has not been used for the longest time makes room.
+     */
+    private final LruCache<DistanceKey, Distance> distanceCache;
+
+    /** concurrent searches that need the same distance share one lookup **/
+    private final SingleFlight<DistanceKey, Distance> distanceLookups;
+
+    /** lookups of concurrent searches are merged into one request to the location service **/
+    private final MicroBatcher<DistanceKey, Distance> distanceBatcher;
+
+    public LocationService(RestTemplate restTemplate, ResilientCaller resilientCaller, MeterRegistry meterRegistry,
+                           @Value("${activity.location.distance-cache.max-size:100000}") int distanceCacheMaxSize,
+                           @Value("${activity.remote.batching.window-ms:5}") long batchingWindow,
+                           @Value("${activity.remote.batching.max-size:200}") int maxBatchSize) {
+        this.restTemplate = restTemplate;
+        this.resilientCaller = resilientCaller;
+        this.distanceCache = new LruCache<>(distanceCacheMaxSize);
+        this.distanceLookups = new SingleFlight<>("distances", meterRegistry);
+        this.distanceBatcher = new MicroBatcher<>("distances", this::findDistance, batchingWindow, maxBatchSize, meterRegistry);
+    }
 
     public List<Distance> findDistance(String userInputLocation, Set<String> activityLocations) {
-        String url = UriComponentsBuilder.fromHttpUrl(findPortalLocationUrl())
+        var keys = activityLocations.stream()
+                .map(activityLocation -> new DistanceKey(userInputLocation, activityLocation))
+                .collect(Collectors.toList());
+        return new ArrayList<>(findDistances(keys).values());
+    }
+
+    /**
+     * Finds the distances between multiple pairs of locations, for example for multiple searches at once.
+     * The distances that are not known yet are asked in one request, unless there are more than fit in one batch.
+     *
+     * @return per key, its distance. Keys of which the distance could not be calculated are left out.
+     */
+    public Map<DistanceKey, Distance> findDistances(Collection<DistanceKey> keys) {
+        var distances = new HashMap<>(distanceCache.getAll(keys));
+        var keysToLookUp = keys.stream()
+                .filter(key -> !distances.containsKey(key))
+                .collect(Collectors.toList());
+
+        if (!keysToLookUp.isEmpty()) {
+            distances.putAll(distanceLookups.getAll(keysToLookUp, distanceBatcher::getAll));
+        }
+
+        return distances;
+    }
+
+    private Map<DistanceKey, Distance> findDistance(Set<DistanceKey> keys) {
+        var distanceQueries = keys.stream()
+                .map(key -> new DistanceQuery(key.getFrom(), key.getTo()))
+                .collect(Collectors.toList());
+        var foundDistances = resilientCaller.call(SERVICE_ID, portalLocationUrl -> findDistance(portalLocationUrl, distanceQueries));
+
+        var distancesPerKey = new HashMap<DistanceKey, Distance>();
+        for (Distance distance : foundDistances) {
+            distancesPerKey.put(new DistanceKey(distance.getLocation1Query(), distance.getLocation2Query()), distance);
+        }
+        distanceCache.putAll(distancesPerKey);
+        return distancesPerKey;
+    }
+
+    private List<Distance> findDistance(String portalLocationUrl, List<DistanceQuery> distanceQueries) {
+        String url = UriComponentsBuilder.fromHttpUrl(portalLocationUrl)
                 .path("distance")
                 .build()
                 .toString();
 
-        List<DistanceQuery> distanceQueries = activityLocations.stream()
-                .map(activityLocation -> new DistanceQuery(userInputLocation, activityLocation))
-                .collect(Collectors.toList());
-
         var response = restTemplate.postForEntity(url, distanceQueries, Distance[].class);
 
         if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null) {
@@ -48,12 +110,12 @@ public class LocationService {
         return Arrays.asList(response.getBody());
     }
 
-    private String findPortalLocationUrl() {
-        List<ServiceInstance> instances = discoveryClient.getInstances(SERVICE_ID);
-        if (instances != null && !instances.isEmpty()) {
-            return instances.get(0).getUri().toString() + "/";
-        } else {
-            throw new IllegalStateException("No instance of " + SERVICE_ID + " registered with Eureka");
-        }
+    /**
+     * The distance between two locations
+     */
+    @lombok.Value
+    public static class DistanceKey {
+        String from;
+        String to;
     }
 }
@@ -0,0 +1,50 @@
+package be.stijnhooft.portal.activity.services;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps at most a max number of values. When it is full, the value that has not been used for the longest time is evicted,
+ * one at a time, so that a full cache keeps serving the values that are used most.
+ *
+ * Reading changes the order of use, so reads and writes share one lock. Use {@link #getAll(Collection)} and {@link #putAll(Map)}
+ * to take the lock once for many keys.
+ */
+class LruCache<K, V> {
+
+    private final LinkedHashMap<K, V> values;
+
+    LruCache(int maxSize) {
+        this.values = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return the values of the keys that are in the cache. Keys that are not in the cache are left out.
+     */
+    synchronized Map<K, V> getAll(Collection<K> keys) {
+        var found = new HashMap<K, V>();
+        for (K key : keys) {
+            var value = values.get(key);
+            if (value != null) {
+                found.put(key, value);
+            }
+        }
+        return found;
+    }
+
+    synchronized void putAll(Map<K, V> newValues) {
+        values.putAll(newValues);
+    }
+
+    synchronized int size() {
+        return values.size();
+    }
+
+}
@@ -0,0 +1,200 @@
+package be.stijnhooft.portal.activity.services;
+
+import be.stijnhooft.portal.activity.remote.Priority;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * State of one search, shared by the filters that are applied during that search.
+ *
+ * A search can have a deadline. The time that is left is split over the list filters that still have to be applied:
+ * before a filter is applied, it gets its share of the remaining time, and time that a filter does not use goes to the next ones.
+ * A filter that does its remote lookups through {@link #within(Supplier)} stops waiting when its share runs out.
+ *
+ * When a filter cannot decide whether an activity matches, because a lookup failed or took too long,
+ * it can keep the activity and mark the condition as unknown for that activity.
+ *
+ * When multiple searches are executed at once, their lookups can be done up front in one go, see {@link #addPrefetched}.
+ * Every search then gets its own context with {@link #forQuery()}, which shares the deadline and the prefetched results.
+ *
+ * Not thread safe, a context is used by one search at a time.
+ */
+public class SearchContext {
+
+    public static final String WEATHER = "weather";
+    public static final String DISTANCE = "distance";
+
+    private final ExecutorService lookupExecutor;
+    private final long deadline;
+    private final boolean bounded;
+    private long filterDeadline;
+    private final Map<String, BitSet> unknown = new LinkedHashMap<>();
+    private final Map<Object, Object> prefetched;
+
+    private SearchContext(ExecutorService lookupExecutor, long deadline, boolean bounded, Map<Object, Object> prefetched) {
+        this.lookupExecutor = lookupExecutor;
+        this.deadline = deadline;
+        this.bounded = bounded;
+        this.filterDeadline = deadline;
+        this.prefetched = prefetched;
+    }
+
+    private SearchContext(ExecutorService lookupExecutor, long deadline, boolean bounded) {
+        this(lookupExecutor, deadline, bounded, new HashMap<>());
+    }
+
+    /**
+     * A search without deadline, that does not accept unknown conditions:
+     * when a filter cannot decide whether an activity matches, the activity is left out.
+     */
+    public static SearchContext unbounded() {
+        return new SearchContext(null, Long.MAX_VALUE, false);
+    }
+
+    /**
+     * A search that should be finished after the given number of milliseconds,
+     * of which the results can contain activities with unknown conditions.
+     *
+     * @param lookupExecutor executes the lookups of the filters, so that the search can stop waiting for them
+     */
+    public static SearchContext withDeadline(long deadlineInMs, ExecutorService lookupExecutor) {
+        return new SearchContext(lookupExecutor, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineInMs), true);
+    }
+
+    /**
+     * A context for one of the searches that are executed together with this context,
+     * with the same deadline and prefetched results, but its own unknown conditions.
+     */
+    public SearchContext forQuery() {
+        return new SearchContext(lookupExecutor, deadline, bounded, prefetched);
+    }
+
+    /**
+     * Gives the next filter its share of the time that is left.
+     *
+     * @param remainingFilters the number of filters that still have to be applied, including the next one
+     */
+    public void startFilter(int remainingFilters) {
+        if (bounded) {
+            long now = System.nanoTime();
+            filterDeadline = now + Math.max(0, deadline - now) / Math.max(1, remainingFilters);
+        }
+    }
+
+    /**
+     * Executes a lookup of a filter, waiting at most for the share of the deadline of that filter.
+     * When the lookup does not finish in time, it is not interrupted: its result can still fill caches for later searches.
+     *
+     * @throws DeadlineExceededException when the lookup did not finish in time
+     */
+    public <T> T within(Supplier<T> lookup) {
+        if (!bounded) {
+            return lookup.get();
+        }
+
+        long remaining = filterDeadline - System.nanoTime();
+        if (remaining <= 0) {
+            throw new DeadlineExceededException("No time left for the lookup");
+        }
+
+        try {
+            return lookupExecutor.submit(Priority.propagate(lookup)::get).get(remaining, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException("The lookup did not finish within " + TimeUnit.NANOSECONDS.toMillis(remaining) + " ms");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException("Interrupted while waiting for the lookup");
+        }
+    }
+
+    /**
+     * Stores the result of a lookup that a filter did for multiple searches at once.
+     *
+     * @param key identifies the lookup, should implement equals and hashCode
+     */
+    public void addPrefetched(Object key, Object result) {
+        prefetched.put(key, result);
+    }
+
+    /**
+     * @return the result of a lookup that has been done up front, or empty when the lookup has not been done
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> findPrefetched(Object key) {
+        return Optional.ofNullable((T) prefetched.get(key));
+    }
+
+    /**
+     * When true, a filter that cannot decide whether an activity matches keeps it, and marks the condition as unknown.
+     * When false, the filter leaves the activity out.
+     */
+    public boolean acceptsUnknown() {
+        return bounded;
+    }
+
+    /**
+     * The rule that every filter follows for the activities it could not check, because a lookup failed or did not finish in time:
+     * when the search accepts unknown conditions, they are kept and their condition is marked as unknown.
+     * Otherwise, they are left out.
+     *
+     * Filters should only fall back on other degraded data (for example stale forecasts) when {@link #acceptsUnknown()}.
+     *
+     * @param result the ordinals of the matching activities, updated in place
+     * @param unchecked the ordinals of the activities of which the condition could not be checked
+     */
+    public void keepIfUnknownAccepted(String condition, BitSet result, BitSet unchecked) {
+        if (acceptsUnknown()) {
+            result.or(unchecked);
+            markUnknown(condition, unchecked);
+        } else {
+            result.andNot(unchecked);
+        }
+    }
+
+    /**
+     * @param ordinals the activities of which the condition is unknown
+     */
+    public void markUnknown(String condition, BitSet ordinals) {
+        if (!ordinals.isEmpty()) {
+            unknown.computeIfAbsent(condition, newCondition -> new BitSet()).or(ordinals);
+        }
+    }
+
+    /**
+     * @return the conditions that are unknown for the activity with the given ordinal, ordered by name
+     */
+    public Set<String> unknownConditionsOf(int ordinal) {
+        var conditions = new TreeSet<String>();
+        unknown.forEach((condition, ordinals) -> {
+            if (ordinals.get(ordinal)) {
+                conditions.add(condition);
+            }
+        });
+        return conditions;
+    }
+
+    /**
+     * @return the conditions that could not be checked for at least one activity
+     */
+    public Set<String> degradedConditions() {
+        return Collections.unmodifiableSet(unknown.keySet());
+    }
+
+}
@@ -1,14 +1,16 @@
 package be.stijnhooft.portal.activity.services;
 
+import be.stijnhooft.portal.activity.remote.MicroBatcher;
+import be.stijnhooft.portal.activity.remote.ResilientCaller;
+import be.stijnhooft.portal.activity.remote.SingleFlight;
 import be.stijnhooft.portal.model.weather.Forecast;
 import be.stijnhooft.portal.model.weather.ForecastRequest;
 import be.stijnhooft.portal.model.weather.ForecastRequests;
 import be.stijnhooft.portal.model.weather.ForecastResponse;
-import lombok.AllArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
@@ -17,25 +19,84 @@ import org.springframework.web.util.UriComponentsBuilder;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static java.time.temporal.ChronoUnit.DAYS;
 
 @Service
 @Slf4j
-@AllArgsConstructor
 public class WeatherService {
 
     private final RestTemplate restTemplate;
-    private final DiscoveryClient discoveryClient;
+    private final ResilientCaller resilientCaller;
+
+    /** concurrent searches for the forecasts of the same location and period share one lookup **/
+    private final SingleFlight<ForecastKey, List<Forecast>> forecastLookups;
+
+    /** lookups of concurrent searches are merged into one request to the weather service **/
+    private final MicroBatcher<ForecastKey, List<Forecast>> forecastBatcher;
 
     public static final String SERVICE_ID = "weather";
 
+    public WeatherService(RestTemplate restTemplate, ResilientCaller resilientCaller, MeterRegistry meterRegistry,
+                          @Value("${activity.remote.batching.window-ms:5}") long batchingWindow,
+                          @Value("${activity.remote.batching.max-size:200}") int maxBatchSize) {
+        this.restTemplate = restTemplate;
+        this.resilientCaller = resilientCaller;
+        this.forecastLookups = new SingleFlight<>("forecasts", meterRegistry);
+        this.forecastBatcher = new MicroBatcher<>("forecasts", this::loadForecasts, batchingWindow, maxBatchSize, meterRegistry);
+    }
+
     public Collection<Forecast> findForecasts(@NonNull Collection<String> locations, @NonNull LocalDate startDate, @NonNull LocalDate endDate) {
-        ForecastRequests forecastRequestsDto = createForecastRequestsDto(locations, startDate, endDate);
+        var keys = locations.stream()
+                .map(location -> new ForecastKey(location, startDate, endDate))
+                .collect(Collectors.toList());
+
+        return findForecasts(keys)
+                .values()
+                .stream()
+                .flatMap(Collection::stream)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the forecasts of locations that can each have their own period, for example for multiple searches at once.
+     * All keys are asked in one request, unless there are more keys than fit in one batch.
+     *
+     * @return per key, the forecasts of its location and period
+     */
+    public Map<ForecastKey, List<Forecast>> findForecasts(@NonNull Collection<ForecastKey> keys) {
+        return forecastLookups.getAll(keys, forecastBatcher::getAll);
+    }
+
+    /**
+     * Asks the forecasts of all keys in one request, and gives every key the forecasts of its location and period.
+     * The keys can have different periods, every location is asked with its own period.
+     */
+    private Map<ForecastKey, List<Forecast>> loadForecasts(Set<ForecastKey> keys) {
+        ForecastRequests forecastRequestsDto = createForecastRequestsDto(keys);
+        var forecasts = resilientCaller.call(SERVICE_ID, portalWeatherUrl -> findForecasts(portalWeatherUrl, forecastRequestsDto));
 
-        String url = UriComponentsBuilder.fromHttpUrl(findPortalWeatherUrl())
+        var keysPerLocation = keys.stream()
+                .collect(Collectors.groupingBy(ForecastKey::getLocation));
+        var forecastsPerKey = new HashMap<ForecastKey, List<Forecast>>();
+        keys.forEach(key -> forecastsPerKey.put(key, new ArrayList<>()));
+        for (Forecast forecast : forecasts) {
+            for (ForecastKey key : keysPerLocation.getOrDefault(forecast.getLocation(), List.of())) {
+                if (key.covers(forecast.getDate())) {
+                    forecastsPerKey.get(key).add(forecast);
+                }
+            }
+        }
+        return forecastsPerKey;
+    }
+
+    private Collection<Forecast> findForecasts(String portalWeatherUrl, ForecastRequests forecastRequestsDto) {
+        String url = UriComponentsBuilder.fromHttpUrl(portalWeatherUrl)
                 .path("forecasts")
                 .build()
                 .toString();
@@ -53,12 +114,12 @@ public class WeatherService {
         }
     }
 
-    private ForecastRequests createForecastRequestsDto(Collection<String> locations, LocalDate startDate, LocalDate endDate) {
-        var forecastRequests = locations.stream()
-                .map(location -> ForecastRequest.builder()
-                        .location(location)
-                        .startDateTime(startDate.atStartOfDay())
-                        .endDateTime(endDate.plus(1, DAYS).atStartOfDay())
+    private ForecastRequests createForecastRequestsDto(Collection<ForecastKey> keys) {
+        var forecastRequests = keys.stream()
+                .map(key -> ForecastRequest.builder()
+                        .location(key.getLocation())
+                        .startDateTime(key.getStartDate().atStartOfDay())
+                        .endDateTime(key.getEndDate().plus(1, DAYS).atStartOfDay())
                         .build())
                 .collect(Collectors.toSet());
         return ForecastRequests.builder()
@@ -66,12 +127,17 @@ public class WeatherService {
                 .build();
     }
 
-    private String findPortalWeatherUrl() {
-        List<ServiceInstance> instances = discoveryClient.getInstances(SERVICE_ID);
-        if (instances != null && !instances.isEmpty()) {
-            return instances.get(0).getUri().toString() + "/";
-        } else {
-            throw new IllegalStateException("No instance of " + SERVICE_ID + " registered with Eureka");
+    /**
+     * The forecasts of one location, in a period.
+     */
+    @lombok.Value
+    public static class ForecastKey {
+        String location;
+        LocalDate startDate;
+        LocalDate endDate;
+
+        boolean covers(LocalDate date) {
+            return date == null || (!date.isBefore(startDate) && !date.isAfter(endDate));
         }
     }
 }
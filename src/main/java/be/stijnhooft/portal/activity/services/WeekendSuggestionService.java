@@ -0,0 +1,140 @@
+package be.stijnhooft.portal.activity.services;
+
+import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.domain.WeekendSuggestion;
+import be.stijnhooft.portal.activity.messaging.ActivitiesChangedEvent;
+import be.stijnhooft.portal.activity.remote.Priority;
+import be.stijnhooft.portal.activity.repositories.WeekendSuggestionRepository;
+import be.stijnhooft.portal.activity.searchparameters.LocationSearchParameter;
+import be.stijnhooft.portal.activity.searchparameters.WeatherSearchParameter;
+import be.stijnhooft.portal.activity.utils.DateUtil;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Finds activities for next weekend, for every configured region.
+ *
+ * The weather does not depend on the region, so the forecasts are fetched only once for the whole catalog.
+ * Afterwards, every region is filtered on location in parallel. The regions share the distance cache of the {@link LocationService}.
+ *
+ * The result is stored per region, so that it can be served instantly.
+ * It is refreshed periodically (forecasts change) and when activities have changed.
+ * Every instance refreshes the suggestions, but a suggestion is only stored when no more recent one has been stored by another instance.
+ */
+@Slf4j
+@Service
+public class WeekendSuggestionService {
+
+    @Getter
+    private final List<String> locations;
+    private final int locationRadius;
+    private final ActivitySearchService activitySearchService;
+    private final WeekendSuggestionRepository weekendSuggestionRepository;
+    private final ExecutorService executorService;
+
+    private final AtomicBoolean stale = new AtomicBoolean(false);
+
+    public WeekendSuggestionService(@Value("${activity.suggestions.location}") List<String> locations,
+                                    @Value("${activity.suggestions.location-radius:15}") int locationRadius,
+                                    @Value("${activity.suggestions.parallelism:4}") int parallelism,
+                                    ActivitySearchService activitySearchService,
+                                    WeekendSuggestionRepository weekendSuggestionRepository) {
+        this.locations = locations;
+        this.locationRadius = locationRadius;
+        this.activitySearchService = activitySearchService;
+        this.weekendSuggestionRepository = weekendSuggestionRepository;
+        this.executorService = Executors.newFixedThreadPool(parallelism);
+    }
+
+    /**
+     * Searches next weekend's activities for every configured region, and stores the result.
+     * @return per location, the activities within the radius that fit next weekend's weather
+     */
+    public synchronized Map<String, Collection<Activity>> refresh() {
+        stale.set(false);
+
+        var nextWeekend = DateUtil.getNextWeekend();
+        var startDate = nextWeekend.get(0);
+        var endDate = nextWeekend.get(1);
+        var suggestions = findSuggestions(WeatherSearchParameter.create(true, startDate, endDate).orElseThrow());
+
+        var computedAt = LocalDateTime.now();
+        var storedLocations = new ArrayList<String>();
+        suggestions.forEach((location, activities) -> {
+            var weekendSuggestion = WeekendSuggestion.builder()
+                    .location(location)
+                    .locationRadius(locationRadius)
+                    .startDate(startDate)
+                    .endDate(endDate)
+                    .computedAt(computedAt)
+                    .activities(new ArrayList<>(activities))
+                    .build();
+            if (weekendSuggestionRepository.saveIfNewer(weekendSuggestion)) {
+                storedLocations.add(location);
+            } else {
+                log.info("Not storing weekend suggestions for {}, another instance has stored more recent ones", location);
+            }
+        });
+
+        log.info("Stored weekend suggestions for {}", storedLocations);
+        return suggestions;
+    }
+
+    /**
+     * Refreshes the stored suggestions, but only when activities have changed since the last refresh.
+     */
+    public void refreshIfStale() {
+        if (stale.get()) {
+            log.info("Activities have changed, refreshing weekend suggestions");
+            refresh();
+        }
+    }
+
+    public Optional<WeekendSuggestion> find(String location) {
+        return weekendSuggestionRepository.findById(location);
+    }
+
+    @EventListener
+    public void onActivitiesChanged(ActivitiesChangedEvent event) {
+        stale.set(true);
+    }
+
+    private Map<String, Collection<Activity>> findSuggestions(WeatherSearchParameter weatherSearchParameter) {
+        var activitiesWithGoodWeather = activitySearchService.find(List.of(weatherSearchParameter));
+
+        var futures = new LinkedHashMap<String, CompletableFuture<Collection<Activity>>>();
+        for (String location : locations) {
+            var locationSearchParameter = LocationSearchParameter.create(location, locationRadius)
+                    .orElseThrow();
+            futures.put(location, CompletableFuture.supplyAsync(
+                    Priority.propagate(() -> activitySearchService.find(activitiesWithGoodWeather, List.of(locationSearchParameter))),
+                    executorService));
+        }
+
+        var suggestions = new LinkedHashMap<String, Collection<Activity>>();
+        futures.forEach((location, future) -> suggestions.put(location, future.join()));
+        return suggestions;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executorService.shutdown();
+    }
+
+}
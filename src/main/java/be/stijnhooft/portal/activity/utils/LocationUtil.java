@@ -0,0 +1,29 @@
+package be.stijnhooft.portal.activity.utils;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+public class LocationUtil {
+
+    private static final Pattern DIACRITICAL_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern SEPARATOR = Pattern.compile("\\s*,\\s*");
+
+    /**
+     * Normalizes a location, or a part of a location, for matching: "  Liège,Belgïe " and "liege, belgie" are the same location.
+     * Accents are removed, the text is lower cased, whitespace is trimmed and collapsed and comma separators get a single space.
+     *
+     * Only use the result for matching, remote services should get the original text.
+     */
+    public static String normalize(String location) {
+        if (location == null) {
+            return "";
+        }
+
+        var withoutAccents = DIACRITICAL_MARKS.matcher(Normalizer.normalize(location, Normalizer.Form.NFD)).replaceAll("");
+        var collapsed = WHITESPACE.matcher(withoutAccents.trim()).replaceAll(" ");
+        return SEPARATOR.matcher(collapsed).replaceAll(", ").toLowerCase(Locale.ROOT);
+    }
+
+}
@@ -0,0 +1,113 @@
+package be.stijnhooft.portal.activity;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends requests with the outbound http client to a local server.
+ */
+class ActivityConfigurationTest {
+
+    private final ActivityConfiguration activityConfiguration = new ActivityConfiguration();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<ReceivedRequest> receivedRequests = new CopyOnWriteArrayList<>();
+
+    private HttpServer server;
+    private CloseableHttpClient httpClient;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            var body = exchange.getRequestBody().readAllBytes();
+            receivedRequests.add(new ReceivedRequest(exchange.getRemoteAddress().getPort(),
+                    exchange.getRequestHeaders().getFirst("Content-Encoding"), body));
+            exchange.sendResponseHeaders(200, 2);
+            exchange.getResponseBody().write("ok".getBytes(StandardCharsets.UTF_8));
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        if (httpClient != null) {
+            httpClient.close();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    void outboundHttpClientReusesPooledConnections() throws IOException {
+        httpClient = outboundHttpClient(false);
+
+        post("first");
+        post("second");
+
+        assertThat(receivedRequests).hasSize(2);
+        assertThat(receivedRequests.get(1).port).isEqualTo(receivedRequests.get(0).port);
+        assertThat(meterRegistry.get("activity.http.pool.wait").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void outboundHttpClientCompressesLargeRequestBodies() throws IOException {
+        httpClient = outboundHttpClient(true);
+        var largeBody = "{\"activity\":\"hiking\"}".repeat(10);
+
+        post("small");
+        post(largeBody);
+
+        assertThat(receivedRequests.get(0).contentEncoding).isNull();
+        assertThat(new String(receivedRequests.get(0).body, StandardCharsets.UTF_8)).isEqualTo("small");
+        assertThat(receivedRequests.get(1).contentEncoding).isEqualTo("gzip");
+        try (var gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(receivedRequests.get(1).body))) {
+            assertThat(new String(gzipInputStream.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(largeBody);
+        }
+    }
+
+    private CloseableHttpClient outboundHttpClient(boolean requestCompression) {
+        var connectionManager = activityConfiguration.outboundConnectionManager(meterRegistry, 10, 5, 2000);
+        return activityConfiguration.outboundHttpClient(connectionManager, 1000, 1000, 1000, 30_000,
+                true, requestCompression, 100);
+    }
+
+    private void post(String body) throws IOException {
+        var request = new HttpPost("http://localhost:" + server.getAddress().getPort() + "/forecasts");
+        request.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+        try (var response = httpClient.execute(request)) {
+            // consume the response, so that the connection goes back to the pool
+            EntityUtils.consume(response.getEntity());
+        }
+    }
+
+    private static class ReceivedRequest {
+        private final int port;
+        private final String contentEncoding;
+        private final byte[] body;
+
+        ReceivedRequest(int port, String contentEncoding, byte[] body) {
+            this.port = port;
+            this.contentEncoding = contentEncoding;
+            this.body = body;
+        }
+    }
+
+}
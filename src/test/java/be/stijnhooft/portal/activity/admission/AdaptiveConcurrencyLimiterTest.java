@@ -0,0 +1,81 @@
+package be.stijnhooft.portal.activity.admission;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void tryAcquireWhenLimitIsReached() {
+        var limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 0.2, 100);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+
+        limiter.release();
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void releaseWhenLatencyGoesUpThenLimitGoesDown() {
+        var limiter = new AdaptiveConcurrencyLimiter(50, 4, 100, 0.5, 1000);
+        limiter.tryAcquire();
+        limiter.release(10_000_000);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+            limiter.release(100_000_000);
+        }
+
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void releaseWhenLatencyStaysLowAndLimitIsUsedThenLimitGoesUp() {
+        var limiter = new AdaptiveConcurrencyLimiter(4, 1, 100, 0.5, 1000);
+
+        for (int round = 0; round < 10; round++) {
+            while (limiter.tryAcquire()) {
+                // use the whole limit
+            }
+            for (int i = limiter.getInFlight(); i > 0; i--) {
+                limiter.release(10_000_000);
+            }
+        }
+
+        assertTrue(limiter.getLimit() > 4);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void releaseWhenLatencyStaysLowAndLimitIsNotUsedThenLimitStaysTheSame() {
+        var limiter = new AdaptiveConcurrencyLimiter(20, 1, 100, 0.5, 1000);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire();
+            limiter.release(10_000_000);
+        }
+
+        assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    void releaseNeverGoesAboveTheMaxLimit() {
+        var limiter = new AdaptiveConcurrencyLimiter(4, 1, 8, 1, 1000);
+
+        for (int round = 0; round < 10; round++) {
+            while (limiter.tryAcquire()) {
+                // use the whole limit
+            }
+            for (int i = limiter.getInFlight(); i > 0; i--) {
+                limiter.release(10_000_000);
+            }
+        }
+
+        assertEquals(8, limiter.getLimit());
+    }
+
+}
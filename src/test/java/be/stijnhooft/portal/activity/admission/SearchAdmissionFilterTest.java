@@ -0,0 +1,72 @@
+package be.stijnhooft.portal.activity.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchAdmissionFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SearchAdmissionFilter filter = new SearchAdmissionFilter(meterRegistry, 1, 1, 1, 0.2, 100, 2);
+
+    @Test
+    void doFilterWhenLimitIsReachedThenServiceUnavailable() throws Exception {
+        var secondResponse = new MockHttpServletResponse();
+        FilterChain chainOfFirstSearch = (request, response) ->
+                filter.doFilter(search("Aalst"), secondResponse, new MockFilterChain());
+
+        filter.doFilter(search("Ghent"), new MockHttpServletResponse(), chainOfFirstSearch);
+
+        assertEquals(503, secondResponse.getStatus());
+        assertEquals("2", secondResponse.getHeader("Retry-After"));
+        assertEquals(1, meterRegistry.get("activity.search.admission.rejected").tag("limiter", "remote").counter().count());
+    }
+
+    @Test
+    void doFilterWhenOtherLimiterIsFullThenSearchIsAdmitted() throws Exception {
+        var secondResponse = new MockHttpServletResponse();
+        FilterChain chainOfFirstSearch = (request, response) ->
+                filter.doFilter(search(null), secondResponse, new MockFilterChain());
+
+        filter.doFilter(search("Ghent"), new MockHttpServletResponse(), chainOfFirstSearch);
+
+        assertEquals(200, secondResponse.getStatus());
+    }
+
+    @Test
+    void doFilterWhenNotASearchThenNoLimit() throws Exception {
+        var secondResponse = new MockHttpServletResponse();
+        FilterChain chainOfFirstSearch = (request, response) ->
+                filter.doFilter(new MockHttpServletRequest("GET", "/activities/123"), secondResponse, new MockFilterChain());
+
+        filter.doFilter(search("Ghent"), new MockHttpServletResponse(), chainOfFirstSearch);
+
+        assertEquals(200, secondResponse.getStatus());
+    }
+
+    @Test
+    void doFilterReleasesTheSearchWhenDone() throws Exception {
+        filter.doFilter(search("Ghent"), new MockHttpServletResponse(), new MockFilterChain());
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(search("Aalst"), response, new MockFilterChain());
+
+        assertEquals(200, response.getStatus());
+        assertEquals(0, meterRegistry.get("activity.search.admission.in-flight").tag("limiter", "remote").gauge().value());
+    }
+
+    private MockHttpServletRequest search(String location) {
+        var request = new MockHttpServletRequest("GET", SearchAdmissionFilter.SEARCH_PATH);
+        if (location != null) {
+            request.setParameter("location", location);
+        }
+        return request;
+    }
+
+}
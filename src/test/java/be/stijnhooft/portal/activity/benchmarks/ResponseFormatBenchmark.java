@@ -0,0 +1,141 @@
+package be.stijnhooft.portal.activity.benchmarks;
+
+import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.domain.DateInterval;
+import be.stijnhooft.portal.activity.domain.Location;
+import be.stijnhooft.portal.activity.domain.Weather;
+import be.stijnhooft.portal.activity.json.ActivityJsonCache;
+import be.stijnhooft.portal.activity.json.ActivityJsonModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.luben.zstd.Zstd;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writing a search result of 5 000 activities in every response format: json (with and without the json cache), CBOR and Smile,
+ * and json compressed with gzip and zstd.
+ * The size of the payload in every format is checked and logged by {@link ResponseFormatSizeTest}.
+ *
+ * Run the main method (after mvn test-compile) to execute the benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseFormatBenchmark {
+
+    static final int NUMBER_OF_ACTIVITIES = 5_000;
+
+    private List<Activity> activities;
+    private ObjectMapper json;
+    private ObjectMapper cachedJson;
+    private ObjectMapper cbor;
+    private ObjectMapper smile;
+    private byte[] jsonPayload;
+
+    @Setup
+    public void setUp() throws IOException {
+        activities = IntStream.range(0, NUMBER_OF_ACTIVITIES)
+                .mapToObj(i -> Activity.builder()
+                        .id(String.valueOf(i))
+                        .version(1)
+                        .name("Activity " + i)
+                        .description("Description of activity " + i + ", which is a bit longer than the name")
+                        .source("https://www.example.com/activities/" + i)
+                        .photo("photo-" + i + ".jpg")
+                        .location(Location.builder()
+                                .street("Street " + i)
+                                .city("City " + (i % 500))
+                                .province("Province " + (i % 10))
+                                .country("Belgium")
+                                .build())
+                        .weather(Weather.builder()
+                                .minTemperature(i % 15)
+                                .maxWind(3 + i % 6)
+                                .build())
+                        .dateInterval(DateInterval.builder()
+                                .startDay(1)
+                                .startMonth(4)
+                                .endDay(30)
+                                .endMonth(9)
+                                .build())
+                        .minNumberOfParticipants(1)
+                        .maxNumberOfParticipants(10)
+                        .label("label " + (i % 20))
+                        .label("outdoor")
+                        .build())
+                .collect(Collectors.toList());
+
+        json = new ObjectMapper();
+        cachedJson = new ObjectMapper().registerModule(new ActivityJsonModule(new ActivityJsonCache(new SimpleMeterRegistry())));
+        cbor = new ObjectMapper(new CBORFactory());
+        smile = new ObjectMapper(new SmileFactory());
+        jsonPayload = json.writeValueAsBytes(activities);
+    }
+
+    @Benchmark
+    public byte[] json() throws IOException {
+        return json.writeValueAsBytes(activities);
+    }
+
+    /**
+     * The json of every activity comes from the json cache, which is filled during the warmup.
+     */
+    @Benchmark
+    public byte[] cachedJson() throws IOException {
+        return cachedJson.writeValueAsBytes(activities);
+    }
+
+    @Benchmark
+    public byte[] cbor() throws IOException {
+        return cbor.writeValueAsBytes(activities);
+    }
+
+    @Benchmark
+    public byte[] smile() throws IOException {
+        return smile.writeValueAsBytes(activities);
+    }
+
+    /**
+     * Only the compression of the json, at the default level of the server.
+     */
+    @Benchmark
+    public byte[] jsonWithGzip() throws IOException {
+        var bytes = new ByteArrayOutputStream(jsonPayload.length / 4);
+        try (var gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(jsonPayload);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Only the compression of the json, at the default level of the zstd filter.
+     */
+    @Benchmark
+    public byte[] jsonWithZstd() {
+        return Zstd.compress(jsonPayload, 3);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ResponseFormatBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+}
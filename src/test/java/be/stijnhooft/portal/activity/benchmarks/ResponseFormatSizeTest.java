@@ -0,0 +1,44 @@
+package be.stijnhooft.portal.activity.benchmarks;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The payload sizes of the formats of the {@link ResponseFormatBenchmark}, for the same search result.
+ */
+@Slf4j
+class ResponseFormatSizeTest {
+
+    private final ResponseFormatBenchmark benchmark = new ResponseFormatBenchmark();
+
+    @BeforeEach
+    void init() throws IOException {
+        benchmark.setUp();
+    }
+
+    @Test
+    void everyFormatIsSmallerThanPlainJson() throws IOException {
+        int json = benchmark.json().length;
+        int cachedJson = benchmark.cachedJson().length;
+        int cbor = benchmark.cbor().length;
+        int smile = benchmark.smile().length;
+        int gzip = benchmark.jsonWithGzip().length;
+        int zstd = benchmark.jsonWithZstd().length;
+        log.info("Payload of {} activities: json {} bytes, cbor {} bytes, smile {} bytes, json + gzip {} bytes, json + zstd {} bytes",
+                ResponseFormatBenchmark.NUMBER_OF_ACTIVITIES, json, cbor, smile, gzip, zstd);
+
+        // the json cache writes the same json
+        assertThat(cachedJson).isEqualTo(json);
+        assertThat(cbor).isLessThan(json);
+        assertThat(smile).isLessThan(json);
+        // the activities are very alike, so compression should at least halve the payload
+        assertThat(gzip).isLessThan(json / 2);
+        assertThat(zstd).isLessThan(json / 2);
+    }
+
+}
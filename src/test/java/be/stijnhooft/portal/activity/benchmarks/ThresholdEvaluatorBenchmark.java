@@ -0,0 +1,68 @@
+package be.stijnhooft.portal.activity.benchmarks;
+
+import be.stijnhooft.portal.activity.catalog.ActivityColumns;
+import be.stijnhooft.portal.activity.filters.BranchFreeThresholdEvaluator;
+import be.stijnhooft.portal.activity.filters.ScalarThresholdEvaluator;
+import be.stijnhooft.portal.activity.filters.ThresholdEvaluator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Participant limits of 100 000 activities, compared with a number of participants by every threshold evaluator.
+ * The limits are random, so that a branch on the outcome of a comparison is mispredicted often.
+ *
+ * Run the main method (after mvn test-compile) to execute the benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThresholdEvaluatorBenchmark {
+
+    static final int NUMBER_OF_ACTIVITIES = 100_000;
+
+    @Param({"scalar", "branch-free"})
+    private String engine;
+
+    private ThresholdEvaluator thresholdEvaluator;
+    private int[] minNumberOfParticipants;
+    private int[] maxNumberOfParticipants;
+
+    @Setup
+    public void setUp() {
+        var random = new Random(42);
+        minNumberOfParticipants = new int[NUMBER_OF_ACTIVITIES];
+        maxNumberOfParticipants = new int[NUMBER_OF_ACTIVITIES];
+        for (int i = 0; i < NUMBER_OF_ACTIVITIES; i++) {
+            minNumberOfParticipants[i] = random.nextInt(10);
+            maxNumberOfParticipants[i] = random.nextInt(4) == 0 ? ActivityColumns.NONE : minNumberOfParticipants[i] + random.nextInt(10);
+        }
+
+        thresholdEvaluator = engine.equals("scalar") ? new ScalarThresholdEvaluator() : new BranchFreeThresholdEvaluator();
+    }
+
+    @Benchmark
+    public long[] participants() {
+        var atMost = thresholdEvaluator.atMost(minNumberOfParticipants, 5);
+        var atLeast = thresholdEvaluator.atLeast(maxNumberOfParticipants, 5);
+        for (int word = 0; word < atMost.length; word++) {
+            atMost[word] &= atLeast[word];
+        }
+        return atMost;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ThresholdEvaluatorBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+}
@@ -0,0 +1,132 @@
+package be.stijnhooft.portal.activity.benchmarks;
+
+import be.stijnhooft.portal.activity.catalog.ActivityColumns;
+import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.domain.Location;
+import be.stijnhooft.portal.activity.domain.Weather;
+import be.stijnhooft.portal.activity.filters.WeatherListFilter;
+import be.stijnhooft.portal.activity.searchparameters.WeatherSearchParameter;
+import be.stijnhooft.portal.activity.services.ForecastStore;
+import be.stijnhooft.portal.model.weather.Forecast;
+import be.stijnhooft.portal.model.weather.Temperature;
+import be.stijnhooft.portal.model.weather.Wind;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Weather filter on a large catalog: 10 000 activities, spread over 500 locations, searching a window of 14 days.
+ * All forecasts are served from the forecast store, so no remote call is measured.
+ *
+ * Run the main method (after mvn test-compile) to execute the benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WeatherListFilterBenchmark {
+
+    static final int NUMBER_OF_ACTIVITIES = 10_000;
+    static final int NUMBER_OF_LOCATIONS = 500;
+    static final int NUMBER_OF_DAYS = 14;
+
+    private WeatherListFilter filter;
+    private List<Activity> activities;
+    private ActivityColumns columns;
+    private BitSet allOrdinals;
+    private WeatherSearchParameter searchParameter;
+
+    @Setup
+    public void setUp() {
+        var random = new Random(42);
+        var startDate = LocalDate.now();
+        var endDate = startDate.plusDays(NUMBER_OF_DAYS - 1);
+
+        var locations = IntStream.range(0, NUMBER_OF_LOCATIONS)
+                .mapToObj(i -> Location.builder()
+                        .city("City " + i)
+                        .province("Province " + (i % 10))
+                        .country("Belgium")
+                        .build())
+                .collect(Collectors.toList());
+
+        activities = IntStream.range(0, NUMBER_OF_ACTIVITIES)
+                .mapToObj(i -> Activity.builder()
+                        .id(String.valueOf(i))
+                        .name("Activity " + i)
+                        .location(locations.get(i % NUMBER_OF_LOCATIONS))
+                        .weather(Weather.builder()
+                                .minTemperature(random.nextInt(15))
+                                .maxWind(3 + random.nextInt(6))
+                                .build())
+                        .build())
+                .collect(Collectors.toList());
+
+        var forecastStore = new ForecastStore(60);
+        var locationKeys = locations.stream()
+                .map(Location::toString)
+                .collect(Collectors.toList());
+        forecastStore.store(locationKeys, startDate, endDate, createForecasts(locationKeys, startDate, random));
+
+        columns = ActivityColumns.of(activities);
+        allOrdinals = columns.all();
+        filter = new WeatherListFilter(null, forecastStore);
+        searchParameter = WeatherSearchParameter.create(true, startDate, endDate).orElseThrow();
+    }
+
+    @Benchmark
+    public Collection<Activity> apply() {
+        return filter.apply(activities, searchParameter);
+    }
+
+    /**
+     * Same filter on the columns of the catalog, as used by a search: the columns are built only once per catalog snapshot.
+     */
+    @Benchmark
+    public BitSet applyOnColumns() {
+        return filter.apply(columns, allOrdinals, searchParameter);
+    }
+
+    static List<Forecast> createForecasts(List<String> locations, LocalDate startDate, Random random) {
+        var forecasts = new ArrayList<Forecast>();
+        for (String location : locations) {
+            for (int day = 0; day < NUMBER_OF_DAYS; day++) {
+                forecasts.add(Forecast.builder()
+                        .location(location)
+                        .date(startDate.plusDays(day))
+                        .source("benchmark")
+                        .createdAt(LocalDateTime.now())
+                        .temperature(Temperature.builder()
+                                .feelsLike(5.0 + random.nextInt(20))
+                                .build())
+                        .wind(Wind.builder()
+                                .beaufort(random.nextInt(8))
+                                .build())
+                        .build());
+            }
+        }
+        return forecasts;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(WeatherListFilterBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+}
@@ -0,0 +1,134 @@
+package be.stijnhooft.portal.activity.catalog;
+
+import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.domain.ActivityVersion;
+import be.stijnhooft.portal.activity.repositories.ActivityRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class ActivityCatalogTest {
+
+    @InjectMocks
+    private ActivityCatalog activityCatalog;
+
+    @Mock
+    private ActivityRepository activityRepository;
+
+    @Test
+    void findAllLoadsTheCatalogOnlyOnce() {
+        var activity = Activity.builder().id("1").version(0).build();
+        when(activityRepository.findAll()).thenReturn(List.of(activity));
+
+        assertThat(activityCatalog.findAll()).containsExactly(activity);
+        assertThat(activityCatalog.findAll()).containsExactly(activity);
+
+        verify(activityRepository, times(1)).findAll();
+    }
+
+    @Test
+    void refreshReplacesAChangedActivity() {
+        var activity1 = Activity.builder().id("1").name("old").version(0).build();
+        var activity2 = Activity.builder().id("2").version(0).build();
+        var changedActivity1 = Activity.builder().id("1").name("new").version(1).build();
+        when(activityRepository.findAll()).thenReturn(List.of(activity1, activity2));
+        when(activityRepository.findById("1")).thenReturn(Optional.of(changedActivity1));
+        activityCatalog.findAll();
+
+        activityCatalog.refresh(List.of("1"));
+
+        assertThat(activityCatalog.findAll()).containsExactly(changedActivity1, activity2);
+        verify(activityRepository, times(1)).findAll();
+    }
+
+    @Test
+    void refreshIgnoresAnOlderVersion() {
+        var activity = Activity.builder().id("1").name("new").version(2).build();
+        var olderActivity = Activity.builder().id("1").name("old").version(1).build();
+        when(activityRepository.findAll()).thenReturn(List.of(activity));
+        when(activityRepository.findById("1")).thenReturn(Optional.of(olderActivity));
+        activityCatalog.findAll();
+
+        activityCatalog.refresh(List.of("1"));
+
+        assertThat(activityCatalog.findAll()).containsExactly(activity);
+    }
+
+    @Test
+    void refreshAddsANewActivityAndRemovesADeletedActivity() {
+        var activity1 = Activity.builder().id("1").version(0).build();
+        var activity2 = Activity.builder().id("2").version(0).build();
+        when(activityRepository.findAll()).thenReturn(List.of(activity1));
+        when(activityRepository.findById("1")).thenReturn(Optional.empty());
+        when(activityRepository.findById("2")).thenReturn(Optional.of(activity2));
+        activityCatalog.findAll();
+
+        activityCatalog.refresh(List.of("1", "2"));
+
+        assertThat(activityCatalog.findAll()).containsExactly(activity2);
+    }
+
+    @Test
+    void refreshWithoutIdsReloadsTheWholeCatalog() {
+        when(activityRepository.findAll()).thenReturn(List.of());
+        activityCatalog.findAll();
+
+        activityCatalog.refresh(List.of());
+        activityCatalog.findAll();
+
+        verify(activityRepository, times(2)).findAll();
+    }
+
+    @Test
+    void reconcileRefreshesTheActivitiesThatTheCatalogMissed() {
+        var unchanged = Activity.builder().id("1").version(0).build();
+        var changed = Activity.builder().id("2").name("old").version(0).build();
+        var deleted = Activity.builder().id("3").version(0).build();
+        var changedInDatabase = Activity.builder().id("2").name("new").version(1).build();
+        var added = Activity.builder().id("4").version(0).build();
+        when(activityRepository.findAll()).thenReturn(List.of(unchanged, changed, deleted));
+        when(activityRepository.findVersionsBy()).thenReturn(List.of(version("1", 0), version("2", 1), version("4", 0)));
+        when(activityRepository.findById("2")).thenReturn(Optional.of(changedInDatabase));
+        when(activityRepository.findById("3")).thenReturn(Optional.empty());
+        when(activityRepository.findById("4")).thenReturn(Optional.of(added));
+        activityCatalog.findAll();
+
+        activityCatalog.reconcile();
+
+        assertThat(activityCatalog.findAll()).containsExactlyInAnyOrder(unchanged, changedInDatabase, added);
+        verify(activityRepository, never()).findById("1");
+        verify(activityRepository, times(1)).findAll();
+    }
+
+    @Test
+    void reconcileDoesNothingWhenTheCatalogHasNotBeenLoaded() {
+        activityCatalog.reconcile();
+
+        verify(activityRepository, never()).findVersionsBy();
+        verify(activityRepository, never()).findAll();
+    }
+
+    private ActivityVersion version(String id, Integer version) {
+        return new ActivityVersion() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public Integer getVersion() {
+                return version;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,50 @@
+package be.stijnhooft.portal.activity.catalog;
+
+import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.domain.Location;
+import be.stijnhooft.portal.activity.domain.Weather;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocationWeatherIndexTest {
+
+    private final Weather warm = Weather.builder().minTemperature(15).build();
+    private final Weather notTooWindy = Weather.builder().maxWind(4).build();
+
+    @Test
+    void indexesTheDistinctProfilesPerLocation() {
+        var columns = ActivityColumns.of(List.of(
+                activity("Dendermonde", warm),
+                activity("Dendermonde", notTooWindy),
+                activity("Dendermonde", warm),
+                activity("Gent", warm),
+                activity("Gent", null),
+                activity(null, warm)));
+
+        var index = columns.locationWeatherIndex();
+
+        assertThat(index.positions()).containsExactly(0, 1, 0, 0, ActivityColumns.NONE, ActivityColumns.NONE);
+        assertThat(index.of(columns.locationIds()[0]).size()).isEqualTo(2);
+        assertThat(index.of(columns.locationIds()[3]).size()).isEqualTo(1);
+    }
+
+    @Test
+    void isBuiltOncePerColumns() {
+        var columns = ActivityColumns.of(List.of(activity("Dendermonde", warm)));
+
+        assertThat(columns.locationWeatherIndex()).isSameAs(columns.locationWeatherIndex());
+    }
+
+    private Activity activity(String city, Weather weather) {
+        return Activity.builder()
+                .location(city == null ? null : Location.builder()
+                        .city(city)
+                        .build())
+                .weather(weather)
+                .build();
+    }
+
+}
@@ -0,0 +1,90 @@
+package be.stijnhooft.portal.activity.catalog;
+
+import be.stijnhooft.portal.activity.domain.Weather;
+import be.stijnhooft.portal.model.weather.*;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WeatherThresholdIndexTest {
+
+    @Test
+    void compatibleWithTemperature() {
+        var index = new WeatherThresholdIndex(List.of(
+                Weather.builder().minTemperature(10).build(),
+                Weather.builder().minTemperature(20).build(),
+                Weather.builder().maxTemperature(15).build(),
+                Weather.builder().build()));
+
+        var forecast = Forecast.builder()
+                .location("Zottegem")
+                .date(LocalDate.now())
+                .source("test")
+                .createdAt(LocalDateTime.now())
+                .temperature(Temperature.builder()
+                        .feelsLike(15.0)
+                        .build())
+                .build();
+
+        assertEquals(bits(0, 2, 3), index.compatibleWith(forecast));
+    }
+
+    @Test
+    void compatibleWithWindAndPrecipitation() {
+        var index = new WeatherThresholdIndex(List.of(
+                Weather.builder().minWind(3).build(),
+                Weather.builder().maxWind(4).build(),
+                Weather.builder().maxRain(20).build(),
+                Weather.builder().maxRain(30).maxWind(6).build(),
+                Weather.builder().maxSnow(0).build()));
+
+        var forecast = Forecast.builder()
+                .location("Zottegem")
+                .date(LocalDate.now())
+                .source("test")
+                .createdAt(LocalDateTime.now())
+                .wind(Wind.builder()
+                        .beaufort(5)
+                        .direction(WindDirection.EAST)
+                        .build())
+                .precipitation(Precipitation.builder()
+                        .type(PrecipitationType.RAIN)
+                        .probability(50)
+                        .intensity(50)
+                        .build())
+                .build();
+
+        // 25% rain, 5 beaufort
+        assertEquals(bits(0, 3, 4), index.compatibleWith(forecast));
+    }
+
+    @Test
+    void compatibleWithAForecastWithoutData() {
+        var index = new WeatherThresholdIndex(List.of(
+                Weather.builder().minTemperature(10).build(),
+                Weather.builder().maxCloudiness(10).build()));
+
+        var forecast = Forecast.builder()
+                .location("Zottegem")
+                .date(LocalDate.now())
+                .source("test")
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        assertEquals(bits(0, 1), index.compatibleWith(forecast));
+    }
+
+    private BitSet bits(int... positions) {
+        var bitSet = new BitSet();
+        for (int position : positions) {
+            bitSet.set(position);
+        }
+        return bitSet;
+    }
+
+}
@@ -0,0 +1,84 @@
+package be.stijnhooft.portal.activity.compression;
+
+import com.github.luben.zstd.Zstd;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZstdCompressionFilterTest {
+
+    private static final String LARGE_BODY = "[" + "{\"name\":\"Wandelen\"},".repeat(200) + "{}]";
+
+    private final ZstdCompressionFilter filter = new ZstdCompressionFilter(3, 1024);
+
+    @Test
+    void doFilterWhenLargeResponseThenCompressed() throws Exception {
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(request("/activities/search/", "gzip, zstd"), response, respondWith(LARGE_BODY));
+
+        assertEquals("zstd", response.getHeader("Content-Encoding"));
+        var body = response.getContentAsByteArray();
+        assertEquals(body.length, response.getContentLength());
+        assertTrue(body.length < LARGE_BODY.length());
+        assertEquals(LARGE_BODY, new String(Zstd.decompress(body, LARGE_BODY.length()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void doFilterWhenSmallResponseThenNotCompressed() throws Exception {
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(request("/labels", "zstd"), response, respondWith("[\"wandelen\"]"));
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("[\"wandelen\"]", response.getContentAsString());
+    }
+
+    @Test
+    void doFilterWhenZstdIsNotAcceptedThenNotCompressed() throws Exception {
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(request("/activities/search/", "gzip"), response, respondWith(LARGE_BODY));
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals(LARGE_BODY, response.getContentAsString());
+    }
+
+    @Test
+    void doFilterWhenExportThenNotCompressed() throws Exception {
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(request("/activities/export", "zstd"), response, respondWith(LARGE_BODY));
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals(LARGE_BODY, response.getContentAsString());
+    }
+
+    @Test
+    void acceptsZstd() {
+        assertTrue(ZstdCompressionFilter.acceptsZstd("gzip, deflate, br, zstd"));
+        assertTrue(ZstdCompressionFilter.acceptsZstd("zstd;q=0.5"));
+        assertFalse(ZstdCompressionFilter.acceptsZstd("gzip, zstd;q=0"));
+        assertFalse(ZstdCompressionFilter.acceptsZstd("gzip"));
+        assertFalse(ZstdCompressionFilter.acceptsZstd(null));
+    }
+
+    private MockHttpServletRequest request(String path, String acceptEncoding) {
+        var request = new MockHttpServletRequest("GET", path);
+        request.addHeader("Accept-Encoding", acceptEncoding);
+        return request;
+    }
+
+    private FilterChain respondWith(String body) {
+        return (request, response) -> {
+            response.setContentType("application/json");
+            response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+}
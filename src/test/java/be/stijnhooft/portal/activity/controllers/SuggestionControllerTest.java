@@ -0,0 +1,63 @@
+package be.stijnhooft.portal.activity.controllers;
+
+import be.stijnhooft.portal.activity.domain.WeekendSuggestion;
+import be.stijnhooft.portal.activity.services.WeekendSuggestionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+class SuggestionControllerTest {
+
+    private SuggestionController suggestionController;
+
+    @Mock
+    private WeekendSuggestionService weekendSuggestionService;
+
+    @BeforeEach
+    void init() {
+        suggestionController = new SuggestionController(weekendSuggestionService);
+        when(weekendSuggestionService.getLocations()).thenReturn(List.of("België", "Nederland"));
+    }
+
+    @Test
+    void findForTheWeekendWhenNoLocationIsGivenThenTheFirstRegionIsUsed() {
+        var weekendSuggestion = WeekendSuggestion.builder().location("België").build();
+        when(weekendSuggestionService.find("België")).thenReturn(Optional.of(weekendSuggestion));
+
+        var response = suggestionController.findForTheWeekend(null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(weekendSuggestion, response.getBody());
+    }
+
+    @Test
+    void findForTheWeekendWhenALocationIsGiven() {
+        var weekendSuggestion = WeekendSuggestion.builder().location("Nederland").build();
+        when(weekendSuggestionService.find("Nederland")).thenReturn(Optional.of(weekendSuggestion));
+
+        var response = suggestionController.findForTheWeekend("Nederland");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(weekendSuggestion, response.getBody());
+    }
+
+    @Test
+    void findForTheWeekendWhenNothingHasBeenStoredYet() {
+        when(weekendSuggestionService.find("Nederland")).thenReturn(Optional.empty());
+
+        var response = suggestionController.findForTheWeekend("Nederland");
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+}
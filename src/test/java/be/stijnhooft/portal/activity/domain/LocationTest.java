@@ -0,0 +1,45 @@
+package be.stijnhooft.portal.activity.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocationTest {
+
+    @Test
+    void toStringJoinsTheFilledInParts() {
+        var location = Location.builder()
+                .street("Voskeslaan")
+                .city("Ghent")
+                .country("Belgium")
+                .build();
+
+        assertThat(location.toString()).isEqualTo("Voskeslaan, Ghent, Belgium");
+    }
+
+    @Test
+    void toStringChangesWhenAPartChanges() {
+        var location = Location.builder()
+                .city("Gent")
+                .country("België")
+                .build();
+        assertThat(location.toString()).isEqualTo("Gent, België");
+        assertThat(location.normalizedKey()).isEqualTo("gent, belgie");
+
+        location.setCity("Aalst");
+
+        assertThat(location.toString()).isEqualTo("Aalst, België");
+        assertThat(location.normalizedKey()).isEqualTo("aalst, belgie");
+    }
+
+    @Test
+    void equalsIgnoresCachedKeys() {
+        var location1 = Location.builder().city("Ghent").build();
+        var location2 = Location.builder().city("Ghent").build();
+        location1.toString();
+
+        assertThat(location1).isEqualTo(location2);
+        assertThat(location1.hashCode()).isEqualTo(location2.hashCode());
+    }
+
+}
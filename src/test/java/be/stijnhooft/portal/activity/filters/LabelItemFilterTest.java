@@ -1,5 +1,6 @@
 package be.stijnhooft.portal.activity.filters;
 
+import be.stijnhooft.portal.activity.catalog.ActivityColumns;
 import be.stijnhooft.portal.activity.domain.Activity;
 import be.stijnhooft.portal.activity.searchparameters.DateSearchParameter;
 import be.stijnhooft.portal.activity.searchparameters.LabelSearchParameter;
@@ -54,6 +55,22 @@ class LabelItemFilterTest {
         assertThat(filter.apply(activity, searchParameter)).isFalse();
     }
 
+    @Test
+    void applyOnColumnsKeepsOnlyMatchingOrdinals() {
+        var columns = ActivityColumns.of(List.of(
+                Activity.builder().labels(List.of("A", "B")).build(),
+                Activity.builder().labels(new ArrayList<>()).build(),
+                Activity.builder().labels(List.of("C")).build(),
+                Activity.builder().labels(List.of("B", "D")).build()));
+
+        var searchParameter = LabelSearchParameter.create(List.of("B", "E")).get();
+
+        var candidates = columns.all();
+        candidates.clear(0);
+
+        assertThat(filter.apply(columns, candidates, searchParameter).stream()).containsExactly(3);
+    }
+
     @Test
     void supportsWhenTrue() {
         assertThat(filter.supports(LabelSearchParameter.create(List.of("A")).get())).isTrue();
@@ -1,9 +1,12 @@
 package be.stijnhooft.portal.activity.filters;
 
+import be.stijnhooft.portal.activity.catalog.ActivityColumns;
 import be.stijnhooft.portal.activity.domain.Activity;
 import be.stijnhooft.portal.activity.domain.Location;
+import be.stijnhooft.portal.activity.remote.CircuitBreakerOpenException;
 import be.stijnhooft.portal.activity.searchparameters.LocationSearchParameter;
 import be.stijnhooft.portal.activity.services.LocationService;
+import be.stijnhooft.portal.activity.services.SearchContext;
 import be.stijnhooft.portal.model.location.Distance;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,6 +17,8 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -52,6 +57,27 @@ class LocationListFilterTest {
         assertTrue(result.contains(activity));
     }
 
+    @Test
+    void applyWhenLiteralMatchIgnoringCaseAndAccents() {
+        // arrange
+        var activity = Activity.builder()
+                .location(Location.builder()
+                        .city("Liège")
+                        .country("België")
+                        .build())
+                .build();
+        var searchParameter = LocationSearchParameter.create("belgie", 10).get();
+
+        // act
+        var result = filter.apply(List.of(activity), searchParameter);
+
+        // assert
+        verifyNoInteractions(locationService);
+
+        assertEquals(1, result.size());
+        assertTrue(result.contains(activity));
+    }
+
     @Test
     void applyWhenLocationServiceRepliesWithADistanceInRange() {
         // arrange
@@ -202,4 +228,96 @@ class LocationListFilterTest {
         assertEquals(0, result.size());
     }
 
-}
\ No newline at end of file
+    @Test
+    void applyKeepsTheOrderOfTheActivitiesAndAsksTheDistanceOfEveryLocationOnlyOnce() {
+        // arrange
+        var ghent = Location.builder()
+                .street("Voskeslaan")
+                .city("Ghent")
+                .province("Oost-Vlaanderen")
+                .country("Belgium")
+                .build();
+        var activityInGhent = Activity.builder().name("1").location(ghent).build();
+        var activityInAalst = Activity.builder().name("2").location(Location.builder().city("Aalst").build()).build();
+        var otherActivityInGhent = Activity.builder().name("3").location(ghent).build();
+        var activityWithoutLocation = Activity.builder().name("4").build();
+        var searchParameter = LocationSearchParameter.create("Aalst", 30).get();
+
+        when(locationService.findDistance("Aalst", Set.of("Voskeslaan, Ghent, Oost-Vlaanderen, Belgium")))
+                .thenReturn(List.of(Distance.builder()
+                        .location1Query("Aalst")
+                        .location2Query("Voskeslaan, Ghent, Oost-Vlaanderen, Belgium")
+                        .km(15)
+                        .build()));
+
+        // act
+        var result = filter.apply(List.of(activityInGhent, activityInAalst, otherActivityInGhent, activityWithoutLocation), searchParameter);
+
+        // assert
+        verify(locationService).findDistance("Aalst", Set.of("Voskeslaan, Ghent, Oost-Vlaanderen, Belgium"));
+        verifyNoMoreInteractions(locationService);
+
+        assertEquals(List.of(activityInGhent, activityInAalst, otherActivityInGhent), result);
+    }
+
+    @Test
+    void applyWhenLocationServiceIsUnavailableThenOnlyLiteralMatches() {
+        // arrange
+        var activityInGhent = Activity.builder()
+                .location(Location.builder()
+                        .street("Voskeslaan")
+                        .city("Ghent")
+                        .province("Oost-Vlaanderen")
+                        .country("Belgium")
+                        .build())
+                .build();
+        var activityInAalst = Activity.builder()
+                .location(Location.builder().city("Aalst").build())
+                .build();
+        var searchParameter = LocationSearchParameter.create("Aalst", 30).get();
+
+        when(locationService.findDistance("Aalst", Set.of("Voskeslaan, Ghent, Oost-Vlaanderen, Belgium")))
+                .thenThrow(new CircuitBreakerOpenException(LocationService.SERVICE_ID));
+
+        // act
+        var result = filter.apply(List.of(activityInGhent, activityInAalst), searchParameter);
+
+        // assert
+        assertEquals(List.of(activityInAalst), result);
+    }
+
+    @Test
+    void applyWhenLocationServiceIsUnavailableAndSearchHasADeadlineThenDistanceIsUnknown() {
+        // arrange
+        var activityInGhent = Activity.builder()
+                .location(Location.builder()
+                        .street("Voskeslaan")
+                        .city("Ghent")
+                        .province("Oost-Vlaanderen")
+                        .country("Belgium")
+                        .build())
+                .build();
+        var activityInAalst = Activity.builder()
+                .location(Location.builder().city("Aalst").build())
+                .build();
+        var columns = ActivityColumns.of(List.of(activityInGhent, activityInAalst));
+        var searchParameter = LocationSearchParameter.create("Aalst", 30).get();
+        var executor = Executors.newSingleThreadExecutor();
+        var searchContext = SearchContext.withDeadline(1000, executor);
+        searchContext.startFilter(1);
+
+        when(locationService.findDistance("Aalst", Set.of("Voskeslaan, Ghent, Oost-Vlaanderen, Belgium")))
+                .thenThrow(new CircuitBreakerOpenException(LocationService.SERVICE_ID));
+
+        // act
+        var result = filter.apply(columns, columns.all(), searchParameter, searchContext);
+        executor.shutdown();
+
+        // assert
+        assertEquals(List.of(0, 1), result.stream().boxed().collect(Collectors.toList()));
+        assertEquals(Set.of(SearchContext.DISTANCE), searchContext.unknownConditionsOf(0));
+        assertEquals(Set.of(), searchContext.unknownConditionsOf(1));
+        assertEquals(Set.of(SearchContext.DISTANCE), searchContext.degradedConditions());
+    }
+
+}
@@ -1,5 +1,6 @@
 package be.stijnhooft.portal.activity.filters;
 
+import be.stijnhooft.portal.activity.catalog.ActivityColumns;
 import be.stijnhooft.portal.activity.domain.Activity;
 import be.stijnhooft.portal.activity.searchparameters.DateSearchParameter;
 import be.stijnhooft.portal.activity.searchparameters.ParticipantsSearchParameter;
@@ -7,6 +8,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -17,7 +19,7 @@ class ParticipantsItemFilterTest {
 
     @BeforeEach
     void init() {
-        filter = new ParticipantsItemFilter();
+        filter = new ParticipantsItemFilter(new BranchFreeThresholdEvaluator());
     }
 
     @Test
@@ -130,6 +132,19 @@ class ParticipantsItemFilterTest {
         assertThat(filter.apply(activity, searchParameter)).isTrue();
     }
 
+    @Test
+    void applyOnColumnsKeepsOnlyMatchingOrdinals() {
+        var tooFew = Activity.builder().minNumberOfParticipants(6).build();
+        var withoutMaximum = Activity.builder().minNumberOfParticipants(2).maxNumberOfParticipants(null).build();
+        var tooMany = Activity.builder().minNumberOfParticipants(0).maxNumberOfParticipants(4).build();
+        var withinRange = Activity.builder().minNumberOfParticipants(5).maxNumberOfParticipants(5).build();
+        var columns = ActivityColumns.of(List.of(tooFew, withoutMaximum, tooMany, withinRange));
+
+        var searchParameter = ParticipantsSearchParameter.create(5).get();
+
+        assertThat(filter.apply(columns, columns.all(), searchParameter).stream()).containsExactly(1, 3);
+    }
+
     @Test
     void supportsWhenTrue() {
         assertThat(filter.supports(ParticipantsSearchParameter.create(5).get())).isTrue();
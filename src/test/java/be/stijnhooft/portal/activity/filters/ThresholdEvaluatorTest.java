@@ -0,0 +1,55 @@
+package be.stijnhooft.portal.activity.filters;
+
+import be.stijnhooft.portal.activity.catalog.ActivityColumns;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ThresholdEvaluatorTest {
+
+    private final ThresholdEvaluator scalar = new ScalarThresholdEvaluator();
+    private final ThresholdEvaluator branchFree = new BranchFreeThresholdEvaluator();
+
+    @Test
+    void atMost() {
+        var thresholds = new int[] {1, 5, ActivityColumns.NONE, 6, Integer.MAX_VALUE, Integer.MIN_VALUE + 1};
+
+        assertThat(BitSet.valueOf(scalar.atMost(thresholds, 5))).isEqualTo(bits(0, 1, 2, 5));
+        assertThat(BitSet.valueOf(branchFree.atMost(thresholds, 5))).isEqualTo(bits(0, 1, 2, 5));
+    }
+
+    @Test
+    void atLeast() {
+        var thresholds = new int[] {1, 5, ActivityColumns.NONE, 6, Integer.MAX_VALUE, Integer.MIN_VALUE + 1};
+
+        assertThat(BitSet.valueOf(scalar.atLeast(thresholds, 5))).isEqualTo(bits(1, 2, 3, 4));
+        assertThat(BitSet.valueOf(branchFree.atLeast(thresholds, 5))).isEqualTo(bits(1, 2, 3, 4));
+    }
+
+    @Test
+    void branchFreeGivesTheSameResultAsScalar() {
+        var random = new Random(7);
+        // a length that is not a multiple of 64, to cover the last, partial word
+        var thresholds = new int[1000];
+        for (int i = 0; i < thresholds.length; i++) {
+            thresholds[i] = random.nextInt(10) == 0 ? ActivityColumns.NONE : random.nextInt(40) - 20;
+        }
+
+        for (int value = -25; value <= 25; value++) {
+            assertThat(branchFree.atMost(thresholds, value)).isEqualTo(scalar.atMost(thresholds, value));
+            assertThat(branchFree.atLeast(thresholds, value)).isEqualTo(scalar.atLeast(thresholds, value));
+        }
+    }
+
+    private BitSet bits(int... indexes) {
+        var bits = new BitSet();
+        for (int index : indexes) {
+            bits.set(index);
+        }
+        return bits;
+    }
+
+}
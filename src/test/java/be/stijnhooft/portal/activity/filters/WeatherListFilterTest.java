@@ -1,10 +1,14 @@
 package be.stijnhooft.portal.activity.filters;
 
+import be.stijnhooft.portal.activity.catalog.ActivityColumns;
 import be.stijnhooft.portal.activity.domain.Activity;
 import be.stijnhooft.portal.activity.domain.Location;
 import be.stijnhooft.portal.activity.domain.Weather;
+import be.stijnhooft.portal.activity.remote.CircuitBreakerOpenException;
 import be.stijnhooft.portal.activity.searchparameters.ParticipantsSearchParameter;
 import be.stijnhooft.portal.activity.searchparameters.WeatherSearchParameter;
+import be.stijnhooft.portal.activity.services.ForecastStore;
+import be.stijnhooft.portal.activity.services.SearchContext;
 import be.stijnhooft.portal.activity.services.WeatherService;
 import be.stijnhooft.portal.model.weather.*;
 import org.junit.jupiter.api.Test;
@@ -18,7 +22,10 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -33,6 +40,171 @@ class WeatherListFilterTest {
     @Mock
     private WeatherService weatherService;
 
+    @Mock
+    private ForecastStore forecastStore;
+
+    @Test
+    void applyWhenForecastsHaveBeenPrefetched() {
+        // arrange
+        var activity = Activity.builder()
+                .location(Location.builder()
+                        .city("Zottegem")
+                        .build())
+                .weather(Weather.builder()
+                        .minTemperature(10)
+                        .build())
+                .build();
+
+        var startDate = LocalDate.now();
+        var endDate = LocalDate.now().plusDays(1);
+        var searchParameter = WeatherSearchParameter.create(true, startDate, endDate).get();
+
+        var forecast = Forecast.builder()
+                .location("Zottegem")
+                .date(startDate)
+                .source("test")
+                .createdAt(LocalDateTime.now())
+                .temperature(Temperature
+                        .builder()
+                        .feelsLike(5.0)
+                        .build())
+                .build();
+
+        doReturn(Map.of("Zottegem", List.of(forecast))).when(forecastStore).find(Set.of("Zottegem"), startDate, endDate);
+
+        // act
+        Collection<Activity> filteredActivities = filter.apply(List.of(activity), searchParameter);
+
+        // assert
+        verifyNoInteractions(weatherService);
+        assertEquals(0, filteredActivities.size());
+    }
+
+    @Test
+    void applyWhenWeatherServiceIsUnavailableAndSearchHasADeadlineThenStaleForecastsAreUsed() {
+        // arrange
+        var activity = Activity.builder()
+                .location(Location.builder()
+                        .city("Zottegem")
+                        .build())
+                .weather(Weather.builder()
+                        .minTemperature(10)
+                        .build())
+                .build();
+        var columns = ActivityColumns.of(List.of(activity));
+
+        var startDate = LocalDate.now();
+        var endDate = LocalDate.now().plusDays(1);
+        var searchParameter = WeatherSearchParameter.create(true, startDate, endDate).get();
+        var executor = Executors.newSingleThreadExecutor();
+        var searchContext = SearchContext.withDeadline(1000, executor);
+        searchContext.startFilter(1);
+
+        var staleForecast = Forecast.builder()
+                .location("Zottegem")
+                .date(startDate)
+                .source("test")
+                .createdAt(LocalDateTime.now().minusDays(1))
+                .temperature(Temperature
+                        .builder()
+                        .feelsLike(5.0)
+                        .build())
+                .build();
+
+        doThrow(new CircuitBreakerOpenException(WeatherService.SERVICE_ID)).when(weatherService).findForecasts(Set.of("Zottegem"), startDate, endDate);
+        doReturn(Map.of("Zottegem", List.of(staleForecast))).when(forecastStore).findIncludingStale(Set.of("Zottegem"), startDate, endDate);
+
+        // act
+        var result = filter.apply(columns, columns.all(), searchParameter, searchContext);
+        executor.shutdown();
+
+        // assert: the stale forecast is too cold
+        assertTrue(result.isEmpty());
+        assertEquals(Set.of(), searchContext.degradedConditions());
+    }
+
+    @Test
+    void applyWhenWeatherServiceIsUnavailableThenStaleForecastsAreNotUsedBySearchesWithoutDeadline() {
+        // arrange
+        var activity = Activity.builder()
+                .location(Location.builder()
+                        .city("Zottegem")
+                        .build())
+                .weather(Weather.builder()
+                        .minTemperature(10)
+                        .build())
+                .build();
+
+        var startDate = LocalDate.now();
+        var endDate = LocalDate.now().plusDays(1);
+        var searchParameter = WeatherSearchParameter.create(true, startDate, endDate).get();
+
+        doThrow(new CircuitBreakerOpenException(WeatherService.SERVICE_ID)).when(weatherService).findForecasts(Set.of("Zottegem"), startDate, endDate);
+
+        // act
+        Collection<Activity> filteredActivities = filter.apply(List.of(activity), searchParameter);
+
+        // assert: like the distance filter, a search without deadline leaves out what it could not check
+        verify(forecastStore, never()).findIncludingStale(any(), any(), any());
+        assertEquals(0, filteredActivities.size());
+    }
+
+    @Test
+    void applyWhenWeatherServiceIsUnavailableAndNoStaleForecastsThenTheActivityIsLeftOut() {
+        // arrange
+        var activity = Activity.builder()
+                .location(Location.builder()
+                        .city("Zottegem")
+                        .build())
+                .weather(Weather.builder()
+                        .minTemperature(10)
+                        .build())
+                .build();
+
+        var startDate = LocalDate.now();
+        var endDate = LocalDate.now().plusDays(1);
+        var searchParameter = WeatherSearchParameter.create(true, startDate, endDate).get();
+
+        doThrow(new CircuitBreakerOpenException(WeatherService.SERVICE_ID)).when(weatherService).findForecasts(Set.of("Zottegem"), startDate, endDate);
+
+        // act
+        Collection<Activity> filteredActivities = filter.apply(List.of(activity), searchParameter);
+
+        // assert: a search without deadline does not accept unknown conditions
+        assertEquals(0, filteredActivities.size());
+    }
+
+    @Test
+    void applyWhenWeatherServiceIsUnavailableAndSearchHasADeadlineThenWeatherIsUnknown() {
+        // arrange
+        var activity = Activity.builder()
+                .location(Location.builder()
+                        .city("Zottegem")
+                        .build())
+                .weather(Weather.builder()
+                        .minTemperature(10)
+                        .build())
+                .build();
+        var columns = ActivityColumns.of(List.of(activity));
+
+        var startDate = LocalDate.now();
+        var endDate = LocalDate.now().plusDays(1);
+        var searchParameter = WeatherSearchParameter.create(true, startDate, endDate).get();
+        var executor = Executors.newSingleThreadExecutor();
+        var searchContext = SearchContext.withDeadline(1000, executor);
+        searchContext.startFilter(1);
+
+        doThrow(new CircuitBreakerOpenException(WeatherService.SERVICE_ID)).when(weatherService).findForecasts(Set.of("Zottegem"), startDate, endDate);
+
+        // act
+        var result = filter.apply(columns, columns.all(), searchParameter, searchContext);
+        executor.shutdown();
+
+        // assert
+        assertEquals(List.of(0), result.stream().boxed().collect(Collectors.toList()));
+        assertEquals(Set.of(SearchContext.WEATHER), searchContext.unknownConditionsOf(0));
+    }
+
     @Test
     void applyWhenActivityHasNoWeatherConditionsDefined() {
         // arrange
@@ -0,0 +1,114 @@
+package be.stijnhooft.portal.activity.json;
+
+import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.domain.FoundActivity;
+import be.stijnhooft.portal.activity.domain.Location;
+import be.stijnhooft.portal.activity.messaging.ActivitiesChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ActivityJsonCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ActivityJsonCache activityJsonCache = new ActivityJsonCache(meterRegistry);
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new ActivityJsonModule(activityJsonCache));
+    private final ObjectMapper objectMapperWithoutCache = new ObjectMapper();
+
+    @Test
+    void writeWhenActivityIsWrittenTwiceThenItIsSerializedOnce() throws Exception {
+        var activity = activity(1);
+
+        var json = write(List.of(activity, activity));
+
+        assertEquals(objectMapperWithoutCache.writeValueAsString(List.of(activity, activity)), json);
+        assertEquals(1, misses());
+        assertEquals(1, hits());
+    }
+
+    @Test
+    void writeWhenVersionChangedThenActivityIsSerializedAgain() throws Exception {
+        var activity = activity(1);
+        write(activity);
+
+        activity.setName("Changed");
+        activity.setVersion(2);
+        var json = write(activity);
+
+        assertEquals(objectMapperWithoutCache.writeValueAsString(activity), json);
+        assertEquals(2, misses());
+    }
+
+    @Test
+    void writeWhenActivityHasNotBeenSavedThenNoCache() throws Exception {
+        var activity = activity(null);
+
+        var json = write(List.of(activity, activity));
+
+        assertEquals(objectMapperWithoutCache.writeValueAsString(List.of(activity, activity)), json);
+        assertEquals(0, misses());
+        assertEquals(0, hits());
+    }
+
+    @Test
+    void writeWhenFoundActivityHasNoUnknownConditionsThenItIsWrittenAsTheCachedActivity() throws Exception {
+        var activity = activity(1);
+        var foundActivities = List.of(new FoundActivity(activity, Set.of()), new FoundActivity(activity, Set.of()));
+
+        var json = write(foundActivities);
+
+        assertEquals(objectMapperWithoutCache.writeValueAsString(foundActivities), json);
+        assertEquals(1, hits());
+    }
+
+    @Test
+    void writeWhenFoundActivityHasUnknownConditions() throws Exception {
+        var foundActivity = new FoundActivity(activity(1), Set.of("weather"));
+
+        var json = write(foundActivity);
+
+        assertEquals(objectMapperWithoutCache.writeValueAsString(foundActivity), json);
+    }
+
+    @Test
+    void onActivitiesChanged() throws Exception {
+        var activity = activity(1);
+        write(activity);
+
+        activityJsonCache.onActivitiesChanged(new ActivitiesChangedEvent(List.of(activity.getId())));
+        write(activity);
+
+        assertEquals(2, misses());
+        assertEquals(0, hits());
+    }
+
+    private String write(Object value) throws Exception {
+        // like the responses, write utf-8 bytes
+        return new String(objectMapper.writeValueAsBytes(value), StandardCharsets.UTF_8);
+    }
+
+    private Activity activity(Integer version) {
+        return Activity.builder()
+                .id(version == null ? null : "1")
+                .name("Wandelen in de Vlaamse Ardennen")
+                .location(Location.builder().city("Zottegem").build())
+                .label("wandelen")
+                .version(version)
+                .build();
+    }
+
+    private double hits() {
+        return meterRegistry.get("activity.json.cache").tag("outcome", "hit").counter().count();
+    }
+
+    private double misses() {
+        return meterRegistry.get("activity.json.cache").tag("outcome", "miss").counter().count();
+    }
+
+}
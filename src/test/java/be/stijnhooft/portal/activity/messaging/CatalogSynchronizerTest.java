@@ -0,0 +1,73 @@
+package be.stijnhooft.portal.activity.messaging;
+
+import be.stijnhooft.portal.activity.catalog.ActivityCatalog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CatalogSynchronizerTest {
+
+    private ActivityCatalog activityCatalog;
+    private MessageChannel messageChannel;
+    private CatalogSynchronizer catalogSynchronizer;
+
+    @BeforeEach
+    void init() {
+        activityCatalog = mock(ActivityCatalog.class);
+        messageChannel = mock(MessageChannel.class);
+        var catalogTopic = mock(CatalogTopic.class);
+        when(catalogTopic.writeToCatalogTopic()).thenReturn(messageChannel);
+        catalogSynchronizer = new CatalogSynchronizer(activityCatalog, catalogTopic);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void onActivitiesChangedAnnouncesTheChangedIdsOnTheCatalogTopic() {
+        when(messageChannel.send(any())).thenReturn(true);
+
+        catalogSynchronizer.onActivitiesChanged(new ActivitiesChangedEvent(List.of("1", "2")));
+
+        var captor = ArgumentCaptor.forClass(Message.class);
+        verify(messageChannel).send(captor.capture());
+        var catalogChange = (CatalogChange) captor.getValue().getPayload();
+        assertEquals(List.of("1", "2"), catalogChange.getIds());
+    }
+
+    @Test
+    void onActivitiesChangedWhenTheAnnouncementFailsThenTheExceptionIsNotPropagated() {
+        when(messageChannel.send(any())).thenThrow(new IllegalStateException("broker down"));
+
+        catalogSynchronizer.onActivitiesChanged(new ActivitiesChangedEvent(List.of("1")));
+
+        verify(messageChannel).send(any());
+    }
+
+    @Test
+    void onCatalogChangeRefreshesTheActivitiesChangedByAnotherInstance() {
+        catalogSynchronizer.onCatalogChange(new CatalogChange("other instance", List.of("1", "2")));
+
+        verify(activityCatalog).refresh(List.of("1", "2"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void onCatalogChangeIgnoresTheAnnouncementsOfThisInstance() {
+        when(messageChannel.send(any())).thenReturn(true);
+        catalogSynchronizer.onActivitiesChanged(new ActivitiesChangedEvent(List.of("1")));
+        var captor = ArgumentCaptor.forClass(Message.class);
+        verify(messageChannel).send(captor.capture());
+
+        catalogSynchronizer.onCatalogChange((CatalogChange) captor.getValue().getPayload());
+
+        verifyNoInteractions(activityCatalog);
+    }
+
+}
@@ -0,0 +1,155 @@
+package be.stijnhooft.portal.activity.messaging;
+
+import be.stijnhooft.portal.model.domain.Event;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class EventPublisherTest {
+
+    private EventTopic eventTopic;
+    private MessageChannel messageChannel;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void init() {
+        eventTopic = mock(EventTopic.class);
+        messageChannel = mock(MessageChannel.class);
+        meterRegistry = new SimpleMeterRegistry();
+        when(eventTopic.writeToEventTopic()).thenReturn(messageChannel);
+    }
+
+    @Test
+    void publishSplitsEventsByCount() {
+        var eventPublisher = new EventPublisher(eventTopic, new ObjectMapper().findAndRegisterModules(), meterRegistry, 2, 1_000_000, 1000, 10, 30_000);
+        when(messageChannel.send(any(Message.class), anyLong())).thenReturn(true);
+
+        eventPublisher.publish(createEvents(5));
+
+        verify(messageChannel, times(3)).send(any(Message.class), anyLong());
+        assertEquals(5, meterRegistry.counter("activity.events.published").count());
+        assertEquals(0, meterRegistry.counter("activity.events.publish.failures").count());
+    }
+
+    @Test
+    void toBatchesSplitsEventsBySize() {
+        var eventPublisher = new EventPublisher(eventTopic, new ObjectMapper().findAndRegisterModules(), meterRegistry, 100, 1, 1000, 10, 30_000);
+
+        var batches = eventPublisher.toBatches(createEvents(3));
+
+        // every event is larger than the max batch size, so every event gets its own batch
+        assertEquals(3, batches.size());
+        batches.forEach(batch -> assertEquals(1, batch.events.size()));
+    }
+
+    @Test
+    void publishWhenSendingFails() {
+        var eventPublisher = new EventPublisher(eventTopic, new ObjectMapper().findAndRegisterModules(), meterRegistry, 2, 1_000_000, 1000, 10, 30_000);
+        when(messageChannel.send(any(Message.class), anyLong())).thenReturn(false);
+
+        var exception = assertThrows(EventPublishingException.class, () -> eventPublisher.publish(createEvents(3)));
+
+        assertEquals(3, exception.getFailedEvents());
+        assertEquals(0, meterRegistry.counter("activity.events.published").count());
+        assertEquals(2, meterRegistry.counter("activity.events.publish.failures").count());
+    }
+
+    @Test
+    void publishSendsEveryBatchAsAJsonArray() throws Exception {
+        var objectMapper = new ObjectMapper().findAndRegisterModules();
+        var eventPublisher = new EventPublisher(eventTopic, objectMapper, meterRegistry, 2, 1_000_000, 1000, 10, 30_000);
+        when(messageChannel.send(any(Message.class), anyLong())).thenReturn(true);
+
+        eventPublisher.publish(createEvents(2));
+
+        var message = ArgumentCaptor.forClass(Message.class);
+        verify(messageChannel).send(message.capture(), anyLong());
+        var payload = (byte[]) message.getValue().getPayload();
+        List<Event> sentEvents = objectMapper.readValue(payload, new TypeReference<>() {});
+        assertEquals(List.of("0", "1"), sentEvents.stream().map(Event::getFlowId).collect(Collectors.toList()));
+        assertNotNull(message.getValue().getHeaders().get(EventPublisher.BATCH_ID));
+    }
+
+    @Test
+    void publishWhenTooManyBatchesAreNotConfirmedThenFails() {
+        var eventPublisher = new EventPublisher(eventTopic, new ObjectMapper().findAndRegisterModules(), meterRegistry, 1, 1_000_000, 10, 1, 30_000);
+        var message = ArgumentCaptor.forClass(Message.class);
+        when(messageChannel.send(message.capture(), anyLong())).thenReturn(true);
+
+        // the second batch waits for the confirmation of the first one, which does not come
+        var exception = assertThrows(EventPublishingException.class, () -> eventPublisher.publish(createEvents(2)));
+        assertEquals(1, exception.getFailedEvents());
+
+        // when the first batch is confirmed, there is room for the next one
+        eventPublisher.confirmed(confirmation(message.getValue(), true));
+        eventPublisher.publish(createEvents(1));
+
+        verify(messageChannel, times(2)).send(any(Message.class), anyLong());
+        assertEquals(1, meterRegistry.counter("activity.events.publish.confirms").count());
+    }
+
+    @Test
+    void confirmedCountsAcksAndNacksSeparately() {
+        var eventPublisher = new EventPublisher(eventTopic, new ObjectMapper().findAndRegisterModules(), meterRegistry, 1, 1_000_000, 1000, 10, 30_000);
+        var message = ArgumentCaptor.forClass(Message.class);
+        when(messageChannel.send(message.capture(), anyLong())).thenReturn(true);
+        eventPublisher.publish(createEvents(2));
+
+        eventPublisher.confirmed(confirmation(message.getAllValues().get(0), true));
+        eventPublisher.confirmed(confirmation(message.getAllValues().get(1), false));
+
+        assertEquals(1, meterRegistry.counter("activity.events.publish.confirms").count());
+        assertEquals(1, meterRegistry.counter("activity.events.publish.nacks").count());
+        assertEquals(0, meterRegistry.get("activity.events.publish.awaiting-confirm").gauge().value());
+    }
+
+    @Test
+    void expireUnconfirmedGivesUpOnBatchesWithoutConfirmation() throws InterruptedException {
+        var eventPublisher = new EventPublisher(eventTopic, new ObjectMapper().findAndRegisterModules(), meterRegistry, 1, 1_000_000, 10, 1, 0);
+        when(messageChannel.send(any(Message.class), anyLong())).thenReturn(true);
+        eventPublisher.publish(createEvents(1));
+        Thread.sleep(5);
+
+        eventPublisher.expireUnconfirmed();
+
+        assertEquals(1, meterRegistry.counter("activity.events.publish.unconfirmed").count());
+        // the permit of the expired batch can be used again
+        eventPublisher.publish(createEvents(1));
+    }
+
+    private Message<?> confirmation(Message<?> sentMessage, boolean ack) {
+        return MessageBuilder.fromMessage(sentMessage)
+                .setHeader(AmqpHeaders.PUBLISH_CONFIRM, ack)
+                .build();
+    }
+
+    private List<Event> createEvents(int numberOfEvents) {
+        return IntStream.range(0, numberOfEvents)
+                .mapToObj(i -> Event.builder()
+                        .flowId(String.valueOf(i))
+                        .source("test")
+                        .publishDate(LocalDateTime.now())
+                        .data(new HashMap<>())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,95 @@
+package be.stijnhooft.portal.activity.remote;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CircuitBreakerTest {
+
+    private final Clock clock = mock(Clock.class);
+
+    @Test
+    void opensWhenTooManyCallsFail() {
+        var circuitBreaker = new CircuitBreaker("weather", 50, 10, 4, 1000, clock);
+
+        callAndSucceed(circuitBreaker);
+        callAndFail(circuitBreaker);
+        callAndSucceed(circuitBreaker);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        callAndFail(circuitBreaker);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void staysClosedBeforeTheMinimumNumberOfCalls() {
+        var circuitBreaker = new CircuitBreaker("weather", 50, 10, 4, 1000, clock);
+
+        callAndFail(circuitBreaker);
+        callAndFail(circuitBreaker);
+        callAndFail(circuitBreaker);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void closesWhenTheTrialCallAfterTheOpenDurationSucceeds() {
+        when(clock.millis()).thenReturn(10_000L);
+        var circuitBreaker = new CircuitBreaker("weather", 50, 10, 1, 1000, clock);
+        callAndFail(circuitBreaker);
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+
+        when(clock.millis()).thenReturn(11_000L);
+
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+
+        circuitBreaker.onSuccess();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void opensAgainWhenTheTrialCallFails() {
+        when(clock.millis()).thenReturn(10_000L);
+        var circuitBreaker = new CircuitBreaker("weather", 50, 10, 1, 1000, clock);
+        callAndFail(circuitBreaker);
+
+        when(clock.millis()).thenReturn(11_000L);
+        callAndFail(circuitBreaker);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void staysHalfOpenWhenTheTrialCallDidNotReachTheService() {
+        when(clock.millis()).thenReturn(10_000L);
+        var circuitBreaker = new CircuitBreaker("weather", 50, 10, 1, 1000, clock);
+        callAndFail(circuitBreaker);
+
+        when(clock.millis()).thenReturn(11_000L);
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        circuitBreaker.onNotCalled();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+    }
+
+    private void callAndSucceed(CircuitBreaker circuitBreaker) {
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        circuitBreaker.onSuccess();
+    }
+
+    private void callAndFail(CircuitBreaker circuitBreaker) {
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        circuitBreaker.onFailure();
+    }
+
+}
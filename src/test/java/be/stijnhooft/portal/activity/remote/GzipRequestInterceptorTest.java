@@ -0,0 +1,96 @@
+package be.stijnhooft.portal.activity.remote;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.entity.GzipCompressingEntity;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.protocol.BasicHttpContext;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GzipRequestInterceptorTest {
+
+    private final GzipRequestInterceptor interceptor = new GzipRequestInterceptor(100);
+
+    @Test
+    void processWhenTheBodyIsSmallerThanTheMinimumSizeThenItIsNotCompressed() {
+        var request = post("a".repeat(99));
+        var entity = request.getEntity();
+
+        interceptor.process(request, new BasicHttpContext());
+
+        assertThat(request.getEntity()).isSameAs(entity);
+        assertThat(request.getEntity().getContentLength()).isEqualTo(99);
+    }
+
+    @Test
+    void processWhenTheBodyReachesTheMinimumSizeThenItIsCompressed() throws IOException {
+        var body = "a".repeat(100);
+        var request = post(body);
+
+        interceptor.process(request, new BasicHttpContext());
+
+        var entity = request.getEntity();
+        assertThat(entity).isInstanceOf(GzipCompressingEntity.class);
+        assertThat(entity.getContentEncoding().getValue()).isEqualTo("gzip");
+        // the compressed length is not known up front, so the body is sent chunked
+        assertThat(entity.getContentLength()).isEqualTo(-1);
+        assertThat(entity.isChunked()).isTrue();
+        assertThat(decompress(entity)).isEqualTo(body);
+    }
+
+    @Test
+    void processWhenTheLengthOfTheBodyIsUnknownThenItIsCompressed() {
+        var request = new HttpPost("http://weather/forecasts");
+        request.setEntity(new InputStreamEntity(new ByteArrayInputStream(new byte[] {'a'}), -1));
+
+        interceptor.process(request, new BasicHttpContext());
+
+        assertThat(request.getEntity()).isInstanceOf(GzipCompressingEntity.class);
+    }
+
+    @Test
+    void processWhenTheBodyIsAlreadyEncodedThenItIsNotCompressedAgain() {
+        var request = post("a".repeat(1000));
+        ((StringEntity) request.getEntity()).setContentEncoding("br");
+        var entity = request.getEntity();
+
+        interceptor.process(request, new BasicHttpContext());
+
+        assertThat(request.getEntity()).isSameAs(entity);
+    }
+
+    @Test
+    void processWhenTheRequestHasNoBody() {
+        var request = new HttpGet("http://weather/forecasts");
+
+        interceptor.process(request, new BasicHttpContext());
+
+        assertThat(request.getFirstHeader("Content-Encoding")).isNull();
+    }
+
+    private HttpPost post(String body) {
+        var request = new HttpPost("http://weather/forecasts");
+        request.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+        return request;
+    }
+
+    private String decompress(HttpEntity entity) throws IOException {
+        var compressed = new ByteArrayOutputStream();
+        entity.writeTo(compressed);
+        try (var gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+            return new String(gzipInputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package be.stijnhooft.portal.activity.remote;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MicroBatcherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CopyOnWriteArrayList<Set<String>> loadedBatches = new CopyOnWriteArrayList<>();
+
+    @Test
+    void getAllMergesConcurrentLookupsIntoOneBatch() throws Exception {
+        var batcher = new MicroBatcher<String, String>("test", this::load, 200, 100, meterRegistry);
+
+        var first = CompletableFuture.supplyAsync(() -> batcher.getAll(Set.of("a", "b")));
+        Thread.sleep(50);
+        var second = CompletableFuture.supplyAsync(() -> batcher.getAll(Set.of("b", "c")));
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(Map.of("a", "A", "b", "B"));
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(Map.of("b", "B", "c", "C"));
+        assertThat(loadedBatches).containsExactly(Set.of("a", "b", "c"));
+    }
+
+    @Test
+    void getAllLoadsAFullBatchWithoutWaitingForTheWindow() throws Exception {
+        var batcher = new MicroBatcher<String, String>("test", this::load, 10_000, 3, meterRegistry);
+
+        var first = CompletableFuture.supplyAsync(() -> batcher.getAll(Set.of("a", "b")));
+        Thread.sleep(50);
+        var second = batcher.getAll(Set.of("c"));
+
+        assertThat(second).isEqualTo(Map.of("c", "C"));
+        assertThat(first.get(1, TimeUnit.SECONDS)).isEqualTo(Map.of("a", "A", "b", "B"));
+        assertThat(loadedBatches).containsExactly(Set.of("a", "b", "c"));
+    }
+
+    @Test
+    void getAllWithoutWindowLoadsEveryLookupOnItsOwn() {
+        var batcher = new MicroBatcher<String, String>("test", this::load, 0, 100, meterRegistry);
+
+        batcher.getAll(Set.of("a"));
+        batcher.getAll(Set.of("b"));
+
+        assertThat(loadedBatches).containsExactly(Set.of("a"), Set.of("b"));
+        assertThat(meterRegistry.get("activity.remote.batch.size").summary().count()).isEqualTo(2);
+    }
+
+    private Map<String, String> load(Set<String> keys) {
+        loadedBatches.add(Set.copyOf(keys));
+        return keys.stream().collect(Collectors.toMap(key -> key, String::toUpperCase));
+    }
+
+}
@@ -0,0 +1,105 @@
+package be.stijnhooft.portal.activity.remote;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrioritizedPermitsTest {
+
+    @Test
+    void tryAcquireWhenAllPermitsAreInUse() throws InterruptedException {
+        var permits = new PrioritizedPermits(2, 2);
+
+        assertTrue(permits.tryAcquire(Priority.INTERACTIVE, 0, TimeUnit.MILLISECONDS));
+        assertTrue(permits.tryAcquire(Priority.BACKGROUND, 0, TimeUnit.MILLISECONDS));
+        assertFalse(permits.tryAcquire(Priority.INTERACTIVE, 10, TimeUnit.MILLISECONDS));
+        assertEquals(2, permits.getInUse());
+        assertEquals(0, permits.getWaiting(Priority.INTERACTIVE));
+    }
+
+    @Test
+    void tryAcquireWhenBackgroundHoldsItsShareThenOnlyInteractiveCanGo() throws InterruptedException {
+        var permits = new PrioritizedPermits(4, 1);
+
+        assertTrue(permits.tryAcquire(Priority.BACKGROUND, 0, TimeUnit.MILLISECONDS));
+        assertFalse(permits.tryAcquire(Priority.BACKGROUND, 10, TimeUnit.MILLISECONDS));
+        assertTrue(permits.tryAcquire(Priority.INTERACTIVE, 0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void releaseGivesThePermitToAnInteractiveCallerFirst() throws Exception {
+        var permits = new PrioritizedPermits(1, 1);
+        var order = Collections.synchronizedList(new ArrayList<Priority>());
+        assertTrue(permits.tryAcquire(Priority.INTERACTIVE, 0, TimeUnit.MILLISECONDS));
+
+        var background = waitFor(permits, Priority.BACKGROUND, order);
+        awaitWaiting(permits, Priority.BACKGROUND);
+        var interactive = waitFor(permits, Priority.INTERACTIVE, order);
+        awaitWaiting(permits, Priority.INTERACTIVE);
+
+        permits.release(Priority.INTERACTIVE);
+        CompletableFuture.allOf(background, interactive).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(Priority.INTERACTIVE, Priority.BACKGROUND), order);
+        assertEquals(0, permits.getInUse());
+    }
+
+    @Test
+    void releaseTwiceWakesUpBothAnInteractiveAndABackgroundCaller() throws Exception {
+        var permits = new PrioritizedPermits(2, 2);
+        assertTrue(permits.tryAcquire(Priority.INTERACTIVE, 0, TimeUnit.MILLISECONDS));
+        assertTrue(permits.tryAcquire(Priority.INTERACTIVE, 0, TimeUnit.MILLISECONDS));
+
+        var background = acquire(permits, Priority.BACKGROUND);
+        awaitWaiting(permits, Priority.BACKGROUND);
+        var interactive = acquire(permits, Priority.INTERACTIVE);
+        awaitWaiting(permits, Priority.INTERACTIVE);
+
+        permits.release(Priority.INTERACTIVE);
+        permits.release(Priority.INTERACTIVE);
+
+        // both get a permit long before their timeout of 5 seconds
+        assertTrue(interactive.get(1, TimeUnit.SECONDS));
+        assertTrue(background.get(1, TimeUnit.SECONDS));
+        assertEquals(2, permits.getInUse());
+    }
+
+    /**
+     * Acquires a permit and keeps it.
+     */
+    private CompletableFuture<Boolean> acquire(PrioritizedPermits permits, Priority priority) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return permits.tryAcquire(priority, 5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+    }
+
+    private CompletableFuture<Void> waitFor(PrioritizedPermits permits, Priority priority, List<Priority> order) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                assertTrue(permits.tryAcquire(priority, 5, TimeUnit.SECONDS));
+                order.add(priority);
+                permits.release(priority);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    private void awaitWaiting(PrioritizedPermits permits, Priority priority) throws InterruptedException {
+        while (permits.getWaiting(priority) == 0) {
+            Thread.sleep(1);
+        }
+    }
+
+}
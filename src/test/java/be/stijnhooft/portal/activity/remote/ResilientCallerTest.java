@@ -0,0 +1,172 @@
+package be.stijnhooft.portal.activity.remote;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class ResilientCallerTest {
+
+    private static final String SERVICE = "weather";
+    private static final long DEFAULT_HEDGE_DELAY = 100;
+
+    @Mock
+    private ServiceInstanceBalancer balancer;
+
+    private ResilientCaller resilientCaller;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final ServiceInstance primary = new DefaultServiceInstance("weather-1", SERVICE, "primary", 8080, false);
+    private final ServiceInstance secondary = new DefaultServiceInstance("weather-2", SERVICE, "secondary", 8080, false);
+
+    @BeforeEach
+    void init() {
+        when(balancer.choose(SERVICE)).thenReturn(primary);
+        when(balancer.choose(SERVICE, primary)).thenReturn(secondary);
+        // the call gets the host of the chosen instance instead of its base url, to keep the tests readable
+        when(balancer.call(any(ServiceInstance.class), any())).thenAnswer(invocation -> {
+            ServiceInstance instance = invocation.getArgument(0);
+            Function<String, Object> call = invocation.getArgument(1);
+            return call.apply(instance.getHost());
+        });
+        resilientCaller = resilientCaller(10);
+    }
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        resilientCaller.shutdown();
+    }
+
+    @Test
+    void callWhenThePrimaryInstanceTakesLongerThanTheHedgeDelayThenAHedgedCallIsSentToAnotherInstance() {
+        long start = System.currentTimeMillis();
+
+        var result = resilientCaller.call(SERVICE, host -> host.equals("primary") ? blockUntilReleased() : "secondary");
+
+        assertThat(result).isEqualTo("secondary");
+        assertThat(System.currentTimeMillis() - start).isLessThan(5_000);
+        verify(balancer).choose(SERVICE, primary);
+        assertThat(meterRegistry.get("activity.remote.calls").tag("outcome", "hedged").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void callWhenTheHedgedCallFailsThenTheAnswerOfThePrimaryInstanceIsUsed() {
+        var result = resilientCaller.call(SERVICE, host -> {
+            if (host.equals("primary")) {
+                sleep(DEFAULT_HEDGE_DELAY * 3);
+                return "primary";
+            }
+            throw new ResourceAccessException("Connection refused");
+        });
+
+        assertThat(result).isEqualTo("primary");
+        verify(balancer).choose(SERVICE, primary);
+    }
+
+    @Test
+    void callWhenThePrimaryInstanceFailsThenTheCallIsRetriedOnAnotherInstance() {
+        var result = resilientCaller.call(SERVICE, host -> {
+            if (host.equals("primary")) {
+                throw new ResourceAccessException("Connection refused");
+            }
+            return "secondary";
+        });
+
+        assertThat(result).isEqualTo("secondary");
+        assertThat(meterRegistry.get("activity.remote.calls").tag("outcome", "retried").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void callWhenTheRetryBudgetIsExhaustedThenTheFailureIsNotRetried() {
+        resilientCaller.shutdown();
+        resilientCaller = resilientCaller(1);
+        Function<String, String> failingCall = host -> {
+            throw new ResourceAccessException("Connection refused");
+        };
+
+        assertThatThrownBy(() -> resilientCaller.call(SERVICE, failingCall)).isInstanceOf(ResourceAccessException.class);
+        assertThatThrownBy(() -> resilientCaller.call(SERVICE, failingCall)).isInstanceOf(ResourceAccessException.class);
+
+        // the first call has been retried once, the second call could not be retried anymore
+        verify(balancer, times(3)).call(any(ServiceInstance.class), any());
+        verify(balancer, times(1)).choose(SERVICE, primary);
+    }
+
+    @Test
+    void callWhenTheRequestIsRejectedWithA4xxThenItIsNotRetriedAndDoesNotOpenTheCircuitBreaker() {
+        for (int i = 0; i < 20; i++) {
+            assertThatThrownBy(() -> resilientCaller.call(SERVICE, host -> {
+                throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+            })).isInstanceOf(HttpClientErrorException.class);
+        }
+
+        verify(balancer, times(20)).call(any(ServiceInstance.class), any());
+        verify(balancer, never()).choose(SERVICE, primary);
+        assertThat(resilientCaller.call(SERVICE, host -> "ok")).isEqualTo("ok");
+    }
+
+    @Test
+    void callWhenCallsFailFastThenTheirLatencyDoesNotShortenTheHedgeDelay() {
+        // more than enough failed calls to know the 95th percentile, if failed calls were recorded
+        for (int i = 0; i < 30; i++) {
+            assertThatThrownBy(() -> resilientCaller.call(SERVICE, host -> {
+                throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+            })).isInstanceOf(HttpClientErrorException.class);
+        }
+
+        var result = resilientCaller.call(SERVICE, host -> {
+            sleep(DEFAULT_HEDGE_DELAY / 2);
+            return host;
+        });
+
+        assertThat(result).isEqualTo("primary");
+        verify(balancer, never()).choose(SERVICE, primary);
+    }
+
+    private ResilientCaller resilientCaller(double retryBudgetMaxTokens) {
+        var outboundLanes = new OutboundLanes(meterRegistry, 16, 0.5, 5_000);
+        return new ResilientCaller(balancer, outboundLanes, meterRegistry,
+                50, 10, 5, 10_000,
+                true, DEFAULT_HEDGE_DELAY, 10,
+                0, retryBudgetMaxTokens,
+                8);
+    }
+
+    private String blockUntilReleased() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "primary";
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+package be.stijnhooft.portal.activity.remote;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class ServiceInstanceBalancerTest {
+
+    @Mock
+    private DiscoveryClient discoveryClient;
+
+    private ServiceInstanceBalancer balancer;
+
+    private final ServiceInstance fastInstance = new DefaultServiceInstance("weather-1", "weather", "fast", 8080, false);
+    private final ServiceInstance slowInstance = new DefaultServiceInstance("weather-2", "weather", "slow", 8080, false);
+
+    @BeforeEach
+    void init() {
+        balancer = new ServiceInstanceBalancer(discoveryClient, 1.0, 10_000);
+    }
+
+    @Test
+    void callPrefersTheInstanceWithTheLowestLatency() {
+        when(discoveryClient.getInstances("weather")).thenReturn(List.of(fastInstance, slowInstance));
+        balancer.call(fastInstance, url -> sleep(1));
+        balancer.call(slowInstance, url -> sleep(50));
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(balancer.choose("weather")).isEqualTo(fastInstance);
+        }
+    }
+
+    @Test
+    void callWhenAnInstanceFailsFastThenItIsNotPreferred() {
+        var failingInstance = new DefaultServiceInstance("weather-3", "weather", "failing", 8080, false);
+        when(discoveryClient.getInstances("weather")).thenReturn(List.of(failingInstance, slowInstance));
+        assertThatThrownBy(() -> balancer.call(failingInstance, url -> {
+            throw new ResourceAccessException("Connection refused");
+        })).isInstanceOf(ResourceAccessException.class);
+        balancer.call(slowInstance, url -> sleep(50));
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(balancer.choose("weather")).isEqualTo(slowInstance);
+        }
+    }
+
+    @Test
+    void refreshForgetsTheStatisticsOfInstancesThatAreGone() {
+        when(discoveryClient.getInstances("weather")).thenReturn(List.of(fastInstance, slowInstance), List.of(fastInstance),
+                List.of(fastInstance, slowInstance));
+        balancer.choose("weather");
+        balancer.call(fastInstance, url -> sleep(1));
+        balancer.call(slowInstance, url -> sleep(50));
+
+        // the slow instance disappears, and comes back
+        balancer.refresh();
+        balancer.refresh();
+
+        // without history, the slow instance gets tried like a new instance
+        for (int i = 0; i < 10; i++) {
+            assertThat(balancer.choose("weather")).isEqualTo(slowInstance);
+        }
+    }
+
+    @Test
+    void callPassesTheBaseUrlOfTheInstance() {
+        when(discoveryClient.getInstances("weather")).thenReturn(List.of(fastInstance));
+
+        assertThat(balancer.call("weather", url -> url)).isEqualTo("http://fast:8080/");
+    }
+
+    @Test
+    void chooseAsksDiscoveryOnlyOnFirstUse() {
+        when(discoveryClient.getInstances("weather")).thenReturn(List.of(fastInstance, slowInstance));
+
+        balancer.choose("weather");
+        balancer.choose("weather");
+
+        verify(discoveryClient, times(1)).getInstances("weather");
+    }
+
+    @Test
+    void chooseAvoidsTheExcludedInstance() {
+        when(discoveryClient.getInstances("weather")).thenReturn(List.of(fastInstance, slowInstance));
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(balancer.choose("weather", fastInstance)).isEqualTo(slowInstance);
+        }
+    }
+
+    @Test
+    void refreshReplacesTheKnownInstances() {
+        when(discoveryClient.getInstances("weather")).thenReturn(List.of(fastInstance), List.of(slowInstance));
+        balancer.choose("weather");
+
+        balancer.refresh();
+
+        assertThat(balancer.choose("weather")).isEqualTo(slowInstance);
+    }
+
+    @Test
+    void chooseWhenNoInstances() {
+        when(discoveryClient.getInstances("weather")).thenReturn(List.of());
+
+        assertThatThrownBy(() -> balancer.choose("weather")).isInstanceOf(IllegalStateException.class);
+    }
+
+    private String sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "";
+    }
+
+}
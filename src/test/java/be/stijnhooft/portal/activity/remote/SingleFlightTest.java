@@ -0,0 +1,115 @@
+package be.stijnhooft.portal.activity.remote;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("test", meterRegistry);
+
+    @Test
+    void getAllLoadsOnlyTheKeysThatAreNotInFlight() throws Exception {
+        var loadedKeys = new CopyOnWriteArrayList<Set<String>>();
+        var firstLoadStarted = new CountDownLatch(1);
+        var releaseFirstLoad = new CountDownLatch(1);
+
+        Function<Set<String>, Map<String, String>> slowLoader = keys -> {
+            loadedKeys.add(Set.copyOf(keys));
+            firstLoadStarted.countDown();
+            await(releaseFirstLoad);
+            return toValues(keys);
+        };
+        var first = CompletableFuture.supplyAsync(() -> singleFlight.getAll(List.of("a", "b"), slowLoader));
+        firstLoadStarted.await(5, TimeUnit.SECONDS);
+
+        var second = CompletableFuture.supplyAsync(() -> singleFlight.getAll(List.of("b", "c"), keys -> {
+            loadedKeys.add(Set.copyOf(keys));
+            return toValues(keys);
+        }));
+        // give the second caller the time to join the lookup of "b"
+        Thread.sleep(100);
+        releaseFirstLoad.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(Map.of("a", "A", "b", "B"));
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(Map.of("b", "B", "c", "C"));
+        assertThat(loadedKeys).containsExactly(Set.of("a", "b"), Set.of("c"));
+        assertThat(meterRegistry.get("activity.remote.lookups").tag("outcome", "coalesced").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("activity.remote.lookups").tag("outcome", "loaded").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void getAllWhenInteractiveThenDoesNotJoinABackgroundLookup() throws Exception {
+        var loadedKeys = new CopyOnWriteArrayList<Set<String>>();
+        var backgroundLoadStarted = new CountDownLatch(1);
+        var releaseBackgroundLoad = new CountDownLatch(1);
+
+        var background = CompletableFuture.supplyAsync(() -> Priority.BACKGROUND.call(() -> singleFlight.getAll(List.of("a"), keys -> {
+            loadedKeys.add(Set.copyOf(keys));
+            backgroundLoadStarted.countDown();
+            await(releaseBackgroundLoad);
+            return toValues(keys);
+        })));
+        backgroundLoadStarted.await(5, TimeUnit.SECONDS);
+
+        // the interactive caller does not wait until the background lookup is released
+        var interactive = singleFlight.getAll(List.of("a"), keys -> {
+            loadedKeys.add(Set.copyOf(keys));
+            return toValues(keys);
+        });
+        releaseBackgroundLoad.countDown();
+
+        assertThat(interactive).isEqualTo(Map.of("a", "A"));
+        assertThat(background.get(5, TimeUnit.SECONDS)).isEqualTo(Map.of("a", "A"));
+        assertThat(loadedKeys).containsExactly(Set.of("a"), Set.of("a"));
+    }
+
+    @Test
+    void getAllLoadsAgainWhenThePreviousLookupIsDone() {
+        singleFlight.getAll(List.of("a"), this::toValues);
+        singleFlight.getAll(List.of("a"), this::toValues);
+
+        assertThat(meterRegistry.get("activity.remote.lookups").tag("outcome", "loaded").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void getAllLeavesOutKeysWithoutValue() {
+        assertThat(singleFlight.getAll(List.of("a", "b"), keys -> Map.of("a", "A"))).isEqualTo(Map.of("a", "A"));
+    }
+
+    @Test
+    void getAllWhenLoaderFails() {
+        assertThatThrownBy(() -> singleFlight.getAll(List.of("a"), keys -> {
+            throw new IllegalStateException("upstream down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        // a failed lookup is not remembered
+        assertThat(singleFlight.getAll(List.of("a"), this::toValues)).isEqualTo(Map.of("a", "A"));
+    }
+
+    private Map<String, String> toValues(Set<String> keys) {
+        return keys.stream().collect(Collectors.toMap(key -> key, String::toUpperCase));
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package be.stijnhooft.portal.activity.remote;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimedPoolingConnectionManagerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TimedPoolingConnectionManager connectionManager = new TimedPoolingConnectionManager(meterRegistry);
+
+    private final HttpRoute weatherRoute = new HttpRoute(new HttpHost("weather", 8080));
+    private final HttpRoute locationRoute = new HttpRoute(new HttpHost("location", 8080));
+
+    @AfterEach
+    void shutdown() {
+        connectionManager.shutdown();
+    }
+
+    @Test
+    void requestConnectionRecordsTheWaitTimePerRoute() throws Exception {
+        lease(weatherRoute);
+        lease(weatherRoute);
+        lease(locationRoute);
+
+        assertThat(meterRegistry.get("activity.http.pool.wait").tag("route", "weather:8080").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("activity.http.pool.wait").tag("route", "location:8080").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("activity.http.pool.wait").timers()).hasSize(2);
+    }
+
+    @Test
+    void requestConnectionWhenThePoolIsExhaustedThenTheWaitUntilTheTimeoutIsRecorded() throws Exception {
+        connectionManager.setDefaultMaxPerRoute(1);
+        var connection = connectionManager.requestConnection(weatherRoute, null).get(1, TimeUnit.SECONDS);
+
+        assertThatThrownBy(() -> connectionManager.requestConnection(weatherRoute, null).get(50, TimeUnit.MILLISECONDS))
+                .isInstanceOf(ConnectionPoolTimeoutException.class);
+
+        var waitTimer = meterRegistry.get("activity.http.pool.wait").tag("route", "weather:8080").timer();
+        assertThat(waitTimer.count()).isEqualTo(2);
+        assertThat(waitTimer.max(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(50);
+        connectionManager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void requestConnectionWhenAConnectionIsReleasedThenItIsLeasedAgain() throws Exception {
+        connectionManager.setDefaultMaxPerRoute(1);
+        var connection = connectionManager.requestConnection(weatherRoute, null).get(1, TimeUnit.SECONDS);
+        connectionManager.releaseConnection(connection, null, 30, TimeUnit.SECONDS);
+
+        var nextConnection = connectionManager.requestConnection(weatherRoute, null).get(1, TimeUnit.SECONDS);
+
+        assertThat(connectionManager.getStats(weatherRoute).getLeased()).isEqualTo(1);
+        connectionManager.releaseConnection(nextConnection, null, 0, TimeUnit.MILLISECONDS);
+    }
+
+    private void lease(HttpRoute route) throws Exception {
+        var connection = connectionManager.requestConnection(route, null).get(1, TimeUnit.SECONDS);
+        connectionManager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+    }
+
+}
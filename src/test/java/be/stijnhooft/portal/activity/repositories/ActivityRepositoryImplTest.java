@@ -0,0 +1,137 @@
+package be.stijnhooft.portal.activity.repositories;
+
+import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.domain.BulkImportResult;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class ActivityRepositoryImplTest {
+
+    @InjectMocks
+    private ActivityRepositoryImpl activityRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private BulkWriteResult bulkWriteResult;
+
+    @BeforeEach
+    void init() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Activity.class)).thenReturn(bulkOperations);
+    }
+
+    @Test
+    void bulkUpsertInsertsNewActivitiesAndReplacesExistingOnes() {
+        var newActivity = Activity.builder().id("1").build();
+        var existingActivity = Activity.builder().id("2").version(3).build();
+        when(bulkOperations.execute()).thenReturn(bulkWriteResult);
+        when(bulkWriteResult.getInsertedCount()).thenReturn(1);
+        when(bulkWriteResult.getMatchedCount()).thenReturn(1);
+
+        var result = activityRepository.bulkUpsert(List.of(newActivity, existingActivity));
+
+        assertThat(result).isEqualTo(new BulkImportResult(2, 0));
+        assertThat(newActivity.getVersion()).isEqualTo(0);
+        assertThat(existingActivity.getVersion()).isEqualTo(4);
+        verify(bulkOperations).insert(newActivity);
+        verify(bulkOperations).replaceOne(any(Query.class), eq(existingActivity), any(FindAndReplaceOptions.class));
+    }
+
+    @Test
+    void bulkUpsertWhenAnActivityWithAVersionDoesNotExistThenItIsInserted() {
+        var exportedActivity = Activity.builder().id("1").version(3).build();
+        when(bulkOperations.execute()).thenReturn(bulkWriteResult);
+        when(bulkWriteResult.getUpserts()).thenReturn(List.of(new BulkWriteUpsert(0, new BsonString("1"))));
+
+        var result = activityRepository.bulkUpsert(List.of(exportedActivity));
+
+        assertThat(result).isEqualTo(new BulkImportResult(1, 0));
+        var options = ArgumentCaptor.forClass(FindAndReplaceOptions.class);
+        verify(bulkOperations).replaceOne(any(Query.class), eq(exportedActivity), options.capture());
+        assertThat(options.getValue().isUpsert()).isTrue();
+    }
+
+    @Test
+    void bulkUpsertWhenAStoredVersionChangedThenItIsAConflict() {
+        // the stored activity 2 has another version, so the upsert tried to insert it a second time
+        var duplicateKeyError = new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1);
+        var exception = mock(BulkOperationException.class);
+        when(exception.getErrors()).thenReturn(List.of(duplicateKeyError));
+        when(exception.getResult()).thenReturn(bulkWriteResult);
+        when(bulkOperations.execute()).thenThrow(exception);
+        when(bulkWriteResult.getMatchedCount()).thenReturn(1);
+
+        var result = activityRepository.bulkUpsert(List.of(
+                Activity.builder().id("1").version(0).build(),
+                Activity.builder().id("2").version(0).build()));
+
+        assertThat(result).isEqualTo(new BulkImportResult(1, 1));
+    }
+
+    @Test
+    void bulkUpsertWhenAnInsertedActivityAlreadyExistsThenItIsAConflict() {
+        var duplicateInsert = new BulkWriteError(11000, "duplicate key", new BsonDocument(), 0);
+        var duplicateUpsert = new BulkWriteError(11000, "duplicate key", new BsonDocument(), 3);
+        var exception = mock(BulkOperationException.class);
+        when(exception.getErrors()).thenReturn(List.of(duplicateInsert, duplicateUpsert));
+        when(exception.getResult()).thenReturn(bulkWriteResult);
+        when(bulkOperations.execute()).thenThrow(exception);
+        when(bulkWriteResult.getInsertedCount()).thenReturn(1);
+        when(bulkWriteResult.getMatchedCount()).thenReturn(1);
+
+        var result = activityRepository.bulkUpsert(List.of(
+                Activity.builder().id("1").build(),
+                Activity.builder().id("2").build(),
+                Activity.builder().id("3").version(0).build(),
+                Activity.builder().id("4").version(0).build()));
+
+        assertThat(result).isEqualTo(new BulkImportResult(2, 2));
+    }
+
+    @Test
+    void bulkUpsertWhenAnotherErrorOccursThenItIsThrown() {
+        var otherError = new BulkWriteError(121, "document failed validation", new BsonDocument(), 0);
+        var exception = mock(BulkOperationException.class);
+        when(exception.getErrors()).thenReturn(List.of(otherError));
+        when(bulkOperations.execute()).thenThrow(exception);
+
+        assertThatThrownBy(() -> activityRepository.bulkUpsert(List.of(Activity.builder().id("1").build())))
+                .isSameAs(exception);
+    }
+
+    @Test
+    void bulkUpsertWhenNothingToWrite() {
+        reset(mongoTemplate);
+
+        assertThat(activityRepository.bulkUpsert(List.of())).isEqualTo(new BulkImportResult(0, 0));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+}
@@ -0,0 +1,58 @@
+package be.stijnhooft.portal.activity.repositories;
+
+import be.stijnhooft.portal.activity.domain.WeekendSuggestion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class WeekendSuggestionRepositoryImplTest {
+
+    @InjectMocks
+    private WeekendSuggestionRepositoryImpl weekendSuggestionRepository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private final WeekendSuggestion weekendSuggestion = WeekendSuggestion.builder()
+            .location("België")
+            .computedAt(LocalDateTime.of(2020, 9, 2, 12, 0))
+            .build();
+
+    @Test
+    void saveIfNewerOnlyReplacesAnOlderSuggestion() {
+        var result = weekendSuggestionRepository.saveIfNewer(weekendSuggestion);
+
+        assertThat(result).isTrue();
+        var captor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findAndReplace(captor.capture(), eq(weekendSuggestion), any(FindAndReplaceOptions.class));
+        var queryObject = captor.getValue().getQueryObject();
+        assertThat(queryObject.get("location")).isEqualTo("België");
+        assertThat(queryObject.toJson()).contains("computedAt", "$lt", "$or");
+    }
+
+    @Test
+    void saveIfNewerWhenAMoreRecentSuggestionIsStored() {
+        when(mongoTemplate.findAndReplace(any(Query.class), eq(weekendSuggestion), any(FindAndReplaceOptions.class)))
+                .thenThrow(new DuplicateKeyException("E11000 duplicate key error"));
+
+        var result = weekendSuggestionRepository.saveIfNewer(weekendSuggestion);
+
+        assertThat(result).isFalse();
+    }
+
+}
@@ -3,10 +3,7 @@ package be.stijnhooft.portal.activity.schedulers;
 import be.stijnhooft.portal.activity.domain.Activity;
 import be.stijnhooft.portal.activity.mappers.SuggestionEventMapper;
 import be.stijnhooft.portal.activity.messaging.EventPublisher;
-import be.stijnhooft.portal.activity.searchparameters.LocationSearchParameter;
-import be.stijnhooft.portal.activity.searchparameters.WeatherSearchParameter;
-import be.stijnhooft.portal.activity.services.ActivitySearchService;
-import be.stijnhooft.portal.activity.utils.DateUtil;
+import be.stijnhooft.portal.activity.services.WeekendSuggestionService;
 import be.stijnhooft.portal.model.domain.Event;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,11 +11,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.mockito.Mockito.*;
 
@@ -26,12 +25,12 @@ import static org.mockito.Mockito.*;
 class PublishWeekendSuggestionsTest {
 
     public static final String LOCATION = "België";
-    public static final int LOCATION_RADIUS = 15;
+    public static final String OTHER_LOCATION = "Nederland";
 
     private PublishWeekendSuggestions publishWeekendSuggestions;
 
     @Mock
-    private ActivitySearchService activitySearchService;
+    private WeekendSuggestionService weekendSuggestionService;
 
     @Mock
     private SuggestionEventMapper suggestionEventMapper;
@@ -41,60 +40,63 @@ class PublishWeekendSuggestionsTest {
 
     @BeforeEach
     void init() {
-        publishWeekendSuggestions = new PublishWeekendSuggestions(LOCATION, LOCATION_RADIUS, activitySearchService, suggestionEventMapper, eventPublisher);
+        publishWeekendSuggestions = new PublishWeekendSuggestions(weekendSuggestionService, suggestionEventMapper, eventPublisher);
     }
 
     @Test
     void publishWhenThereAreSuggestions() {
         // arrange
-        List<LocalDate> nextWeekend = DateUtil.getNextWeekend();
-        var locationSearchParameter = LocationSearchParameter.create(LOCATION, LOCATION_RADIUS)
-                .orElseThrow();
-        var weatherSearchParameter = WeatherSearchParameter.create(true, nextWeekend.get(0), nextWeekend.get(1))
-                .orElseThrow();
-        var searchParameters = List.of(locationSearchParameter, weatherSearchParameter);
-
         var activities = List.of(
                 Activity.builder().id("1").build(),
                 Activity.builder().id("2").build()
         );
+        var otherActivities = List.of(
+                Activity.builder().id("3").build()
+        );
 
         var events = List.of(
                 Event.builder().flowId("1").source("test").publishDate(LocalDateTime.now()).data(new HashMap<>()).build(),
                 Event.builder().flowId("2").source("test").publishDate(LocalDateTime.now()).data(new HashMap<>()).build()
         );
+        var otherEvents = List.of(
+                Event.builder().flowId("3").source("test").publishDate(LocalDateTime.now()).data(new HashMap<>()).build()
+        );
+
+        Map<String, Collection<Activity>> suggestions = new LinkedHashMap<>();
+        suggestions.put(LOCATION, activities);
+        suggestions.put(OTHER_LOCATION, otherActivities);
 
-        when(activitySearchService.find(searchParameters)).thenReturn(activities);
+        when(weekendSuggestionService.refresh()).thenReturn(suggestions);
         when(suggestionEventMapper.map(activities)).thenReturn(events);
+        when(suggestionEventMapper.map(otherActivities)).thenReturn(otherEvents);
 
         // act
         publishWeekendSuggestions.publishSuggestionsForTheWeekend();
 
         // assert
-        verify(activitySearchService).find(searchParameters);
+        verify(weekendSuggestionService).refresh();
         verify(suggestionEventMapper).map(activities);
+        verify(suggestionEventMapper).map(otherActivities);
         verify(eventPublisher).publish(events);
-        verifyNoMoreInteractions(activitySearchService, suggestionEventMapper, eventPublisher);
+        verify(eventPublisher).publish(otherEvents);
+        verifyNoMoreInteractions(weekendSuggestionService, suggestionEventMapper, eventPublisher);
     }
 
     @Test
     void publishWhenThereNoSuggestions() {
         // arrange
-        List<LocalDate> nextWeekend = DateUtil.getNextWeekend();
-        var locationSearchParameter = LocationSearchParameter.create(LOCATION, LOCATION_RADIUS)
-                .orElseThrow();
-        var weatherSearchParameter = WeatherSearchParameter.create(true, nextWeekend.get(0), nextWeekend.get(1))
-                .orElseThrow();
-        var searchParameters = List.of(locationSearchParameter, weatherSearchParameter);
+        Map<String, Collection<Activity>> suggestions = new LinkedHashMap<>();
+        suggestions.put(LOCATION, new ArrayList<>());
+        suggestions.put(OTHER_LOCATION, new ArrayList<>());
 
-        when(activitySearchService.find(searchParameters)).thenReturn(new ArrayList<>());
+        when(weekendSuggestionService.refresh()).thenReturn(suggestions);
 
         // act
         publishWeekendSuggestions.publishSuggestionsForTheWeekend();
 
         // assert
-        verify(activitySearchService).find(searchParameters);
-        verifyNoMoreInteractions(activitySearchService, suggestionEventMapper, eventPublisher);
+        verify(weekendSuggestionService).refresh();
+        verifyNoMoreInteractions(weekendSuggestionService, suggestionEventMapper, eventPublisher);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,59 @@
+package be.stijnhooft.portal.activity.schedulers;
+
+import be.stijnhooft.portal.activity.remote.Priority;
+import be.stijnhooft.portal.activity.services.WeekendSuggestionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class RefreshWeekendSuggestionsTest {
+
+    private RefreshWeekendSuggestions refreshWeekendSuggestions;
+
+    @Mock
+    private WeekendSuggestionService weekendSuggestionService;
+
+    @BeforeEach
+    void init() {
+        refreshWeekendSuggestions = new RefreshWeekendSuggestions(weekendSuggestionService);
+    }
+
+    @Test
+    void refreshForNewForecastsRefreshesWithBackgroundPriority() {
+        var priority = new AtomicReference<Priority>();
+        when(weekendSuggestionService.refresh()).thenAnswer(invocation -> {
+            priority.set(Priority.current());
+            return Map.of();
+        });
+
+        refreshWeekendSuggestions.refreshForNewForecasts();
+
+        verify(weekendSuggestionService).refresh();
+        assertEquals(Priority.BACKGROUND, priority.get());
+    }
+
+    @Test
+    void refreshForChangedActivitiesOnlyRefreshesWhenStaleWithBackgroundPriority() {
+        var priority = new AtomicReference<Priority>();
+        doAnswer(invocation -> {
+            priority.set(Priority.current());
+            return null;
+        }).when(weekendSuggestionService).refreshIfStale();
+
+        refreshWeekendSuggestions.refreshForChangedActivities();
+
+        verify(weekendSuggestionService).refreshIfStale();
+        verify(weekendSuggestionService, never()).refresh();
+        assertEquals(Priority.BACKGROUND, priority.get());
+    }
+
+}
@@ -0,0 +1,130 @@
+package be.stijnhooft.portal.activity.services;
+
+import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.domain.BulkImportResult;
+import be.stijnhooft.portal.activity.repositories.ActivityRepository;
+import be.stijnhooft.portal.activity.repositories.ActivityRepositoryImpl;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.mongo.config.MongodConfigBuilder;
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.process.runtime.Network;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Exports and imports activities with a real (embedded) Mongo database,
+ * because what counts as a conflict is decided by the database.
+ */
+class ActivityBulkServiceMongoTest {
+
+    private static MongodExecutable mongodExecutable;
+    private static MongoClient mongoClient;
+    private static MongoTemplate mongoTemplate;
+
+    private ActivityRepository activityRepository;
+    private ActivityBulkService activityBulkService;
+
+    @BeforeAll
+    static void startMongo() throws IOException {
+        int port = Network.getFreeServerPort();
+        mongodExecutable = MongodStarter.getDefaultInstance().prepare(new MongodConfigBuilder()
+                .version(Version.Main.PRODUCTION)
+                .net(new Net(port, Network.localhostIsIPv6()))
+                .build());
+        mongodExecutable.start();
+        mongoClient = MongoClients.create("mongodb://localhost:" + port);
+        mongoTemplate = new MongoTemplate(mongoClient, "activity");
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        mongoClient.close();
+        mongodExecutable.stop();
+    }
+
+    @BeforeEach
+    void init() {
+        mongoTemplate.dropCollection(Activity.class);
+        activityRepository = new MongoRepositoryFactory(mongoTemplate)
+                .getRepository(ActivityRepository.class, new ActivityRepositoryImpl(mongoTemplate));
+        activityBulkService = new ActivityBulkService(activityRepository, Jackson2ObjectMapperBuilder.json().build(),
+                mock(ApplicationEventPublisher.class), 2);
+    }
+
+    @Test
+    void importActivitiesOfAnExportIntoAnEmptyDatabase() throws IOException {
+        activityRepository.saveAll(List.of(
+                Activity.builder().id("1").name("hiking").label("outdoor").build(),
+                Activity.builder().id("2").name("museum").build(),
+                Activity.builder().id("3").name("cinema").build()));
+        var export = export();
+        mongoTemplate.dropCollection(Activity.class);
+
+        var result = activityBulkService.importActivities(new ByteArrayInputStream(export));
+
+        assertThat(result).isEqualTo(new BulkImportResult(3, 0));
+        assertThat(activityRepository.findAll())
+                .extracting(Activity::getName)
+                .containsExactlyInAnyOrder("hiking", "museum", "cinema");
+        assertThat(activityRepository.findById("1").orElseThrow().getLabels()).containsExactly("outdoor");
+    }
+
+    @Test
+    void importActivitiesOfAnExportTwiceThenTheSecondImportOnlyHasConflicts() throws IOException {
+        activityRepository.saveAll(List.of(
+                Activity.builder().id("1").name("hiking").build(),
+                Activity.builder().id("2").name("museum").build(),
+                Activity.builder().id("3").name("cinema").build()));
+        var export = export();
+
+        // the first import replaces the activities of which the version did not change
+        var firstResult = activityBulkService.importActivities(new ByteArrayInputStream(export));
+        // afterwards, the stored versions are newer than the versions in the export
+        var secondResult = activityBulkService.importActivities(new ByteArrayInputStream(export));
+
+        assertThat(firstResult).isEqualTo(new BulkImportResult(3, 0));
+        assertThat(secondResult).isEqualTo(new BulkImportResult(0, 3));
+        assertThat(activityRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void importActivitiesWhenAnActivityWasChangedAfterTheExportThenItIsAConflict() throws IOException {
+        activityRepository.saveAll(List.of(
+                Activity.builder().id("1").name("hiking").build(),
+                Activity.builder().id("2").name("museum").build()));
+        var export = export();
+        var changedActivity = activityRepository.findById("1").orElseThrow();
+        changedActivity.setName("hiking in the Ardennes");
+        activityRepository.save(changedActivity);
+
+        var result = activityBulkService.importActivities(new ByteArrayInputStream(export));
+
+        assertThat(result).isEqualTo(new BulkImportResult(1, 1));
+        assertThat(activityRepository.findById("1").orElseThrow().getName()).isEqualTo("hiking in the Ardennes");
+    }
+
+    private byte[] export() throws IOException {
+        var outputStream = new ByteArrayOutputStream();
+        activityBulkService.export(outputStream);
+        return outputStream.toByteArray();
+    }
+
+}
@@ -0,0 +1,144 @@
+package be.stijnhooft.portal.activity.services;
+
+import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.domain.BulkImportResult;
+import be.stijnhooft.portal.activity.domain.Location;
+import be.stijnhooft.portal.activity.messaging.ActivitiesChangedEvent;
+import be.stijnhooft.portal.activity.repositories.ActivityRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class ActivityBulkServiceTest {
+
+    @Mock
+    private ActivityRepository activityRepository;
+
+    @Mock
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    /** configured like the object mapper of the application **/
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private ActivityBulkService activityBulkService;
+
+    @BeforeEach
+    void init() {
+        activityBulkService = new ActivityBulkService(activityRepository, objectMapper, applicationEventPublisher, 2);
+    }
+
+    @Test
+    void importActivitiesWritesFullBatchesAndTheRemainder() throws IOException {
+        var batches = new ArrayList<List<String>>();
+        when(activityRepository.bulkUpsert(anyCollection())).thenAnswer(invocation -> {
+            Collection<Activity> batch = invocation.getArgument(0);
+            batches.add(batch.stream().map(Activity::getId).collect(Collectors.toList()));
+            return new BulkImportResult(batch.size() - 1, 1);
+        });
+
+        var result = activityBulkService.importActivities(ndjson(activities(5)));
+
+        assertThat(batches).containsExactly(List.of("1", "2"), List.of("3", "4"), List.of("5"));
+        assertThat(result).isEqualTo(new BulkImportResult(2, 3));
+        verify(applicationEventPublisher).publishEvent(any(ActivitiesChangedEvent.class));
+    }
+
+    @Test
+    void importActivitiesWhenTheLastBatchIsFullThenDoesNotWriteAnEmptyBatch() throws IOException {
+        when(activityRepository.bulkUpsert(anyCollection())).thenReturn(new BulkImportResult(2, 0));
+
+        var result = activityBulkService.importActivities(ndjson(activities(4)));
+
+        assertThat(result).isEqualTo(new BulkImportResult(4, 0));
+        verify(activityRepository, times(2)).bulkUpsert(anyCollection());
+    }
+
+    @Test
+    void importActivitiesWhenNothingIsImportedThenDoesNotPublishAChange() throws IOException {
+        when(activityRepository.bulkUpsert(anyCollection())).thenReturn(new BulkImportResult(0, 2));
+
+        var result = activityBulkService.importActivities(ndjson(activities(2)));
+
+        assertThat(result).isEqualTo(new BulkImportResult(0, 2));
+        verifyNoInteractions(applicationEventPublisher);
+    }
+
+    @Test
+    void importActivitiesRejectsActivitiesWithANewPhoto() throws IOException {
+        var withPhoto = Activity.builder().id("1").name("with photo").newPhotoContent("base64").build();
+        var withoutPhoto = Activity.builder().id("2").name("without photo").build();
+        when(activityRepository.bulkUpsert(anyCollection())).thenReturn(new BulkImportResult(1, 0));
+
+        var result = activityBulkService.importActivities(ndjson(List.of(withPhoto, withoutPhoto)));
+
+        assertThat(result).isEqualTo(new BulkImportResult(1, 0, 1));
+        verify(activityRepository).bulkUpsert(List.of(withoutPhoto));
+    }
+
+    @Test
+    void exportAndImportGiveBackTheSameActivities() throws IOException {
+        var activities = activities(3);
+        when(activityRepository.streamAllBy()).thenReturn(activities.stream());
+        var exported = new ByteArrayOutputStream();
+
+        activityBulkService.export(exported);
+
+        var lines = exported.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(3);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<Activity>> batches = ArgumentCaptor.forClass(Collection.class);
+        when(activityRepository.bulkUpsert(batches.capture())).thenReturn(new BulkImportResult(0, 0));
+
+        activityBulkService.importActivities(new ByteArrayInputStream(exported.toByteArray()));
+
+        var imported = batches.getAllValues().stream().flatMap(Collection::stream).collect(Collectors.toList());
+        assertThat(imported).isEqualTo(activities);
+    }
+
+    private List<Activity> activities(int count) {
+        return IntStream.rangeClosed(1, count)
+                .mapToObj(id -> Activity.builder()
+                        .id(String.valueOf(id))
+                        .name("Activity " + id)
+                        .location(Location.builder()
+                                .city("Dendermonde")
+                                .build())
+                        .label("test")
+                        .minNumberOfParticipants(1)
+                        .version(id)
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private ByteArrayInputStream ndjson(List<Activity> activities) throws IOException {
+        var ndjson = new StringBuilder();
+        for (Activity activity : activities) {
+            ndjson.append(objectMapper.writeValueAsString(activity)).append("\n");
+        }
+        return new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -1,9 +1,12 @@
 package be.stijnhooft.portal.activity.services;
 
+import be.stijnhooft.portal.activity.catalog.ActivityCatalog;
 import be.stijnhooft.portal.activity.domain.Activity;
 import be.stijnhooft.portal.activity.domain.DateInterval;
+import be.stijnhooft.portal.activity.domain.FoundActivity;
 import be.stijnhooft.portal.activity.domain.Location;
 import be.stijnhooft.portal.activity.domain.Weather;
+import be.stijnhooft.portal.activity.messaging.CatalogTopic;
 import be.stijnhooft.portal.activity.messaging.EventTopic;
 import be.stijnhooft.portal.activity.repositories.ActivityRepository;
 import be.stijnhooft.portal.activity.searchparameters.DateSearchParameter;
@@ -11,6 +14,7 @@ import be.stijnhooft.portal.activity.searchparameters.LabelSearchParameter;
 import be.stijnhooft.portal.activity.searchparameters.WeatherSearchParameter;
 import be.stijnhooft.portal.model.weather.Forecast;
 import be.stijnhooft.portal.model.weather.Temperature;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -21,6 +25,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
@@ -32,12 +37,15 @@ import static org.mockito.Mockito.*;
  */
 @SuppressWarnings("OptionalGetWithoutIsPresent")
 @SpringBootTest
-@EnableBinding(EventTopic.class)
+@EnableBinding({EventTopic.class, CatalogTopic.class})
 class ActivitySearchServiceTest {
 
     @Autowired
     private ActivitySearchService activitySearchService;
 
+    @Autowired
+    private ActivityCatalog activityCatalog;
+
     @MockBean
     private ActivityRepository activityRepository;
 
@@ -47,6 +55,12 @@ class ActivitySearchServiceTest {
     @MockBean
     private LocationService locationService;
 
+    @BeforeEach
+    void init() {
+        // make sure that the catalog reads the activities of the mocked repository
+        activityCatalog.invalidate();
+    }
+
     @Test
     void findWhenSomethingAppliesToAllFiltersThenReturnIt() {
         // arrange
@@ -279,4 +293,77 @@ class ActivitySearchServiceTest {
         verify(weatherService).findForecasts(Set.of("Dendermonde"), startDate, endDate);
     }
 
-}
\ No newline at end of file
+    @Test
+    void findBatchAsksTheForecastsOfAllSearchesInOneLookup() {
+        // arrange
+        var activity = Activity.builder()
+                .location(Location.builder()
+                        .city("Dendermonde")
+                        .build())
+                .weather(Weather.builder()
+                        .minTemperature(15)
+                        .build())
+                .dateInterval(DateInterval.builder()
+                        .startDay(1)
+                        .startMonth(6)
+                        .endDay(1)
+                        .endMonth(9)
+                        .build())
+                .labels(List.of("test", "another label"))
+                .build();
+
+        var firstWeekend = LocalDate.of(2021, 7, 3);
+        var secondWeekend = LocalDate.of(2021, 7, 10);
+        var labelSearchParameter = LabelSearchParameter.create(List.of("test")).get();
+        var firstSearch = List.of(labelSearchParameter, WeatherSearchParameter.create(true, firstWeekend, firstWeekend).get());
+        var secondSearch = List.of(labelSearchParameter, WeatherSearchParameter.create(true, secondWeekend, secondWeekend).get());
+
+        var firstKey = new WeatherService.ForecastKey("Dendermonde", firstWeekend, firstWeekend);
+        var secondKey = new WeatherService.ForecastKey("Dendermonde", secondWeekend, secondWeekend);
+
+        when(activityRepository.findAll()).thenReturn(List.of(activity));
+        when(weatherService.findForecasts(Set.of(firstKey, secondKey))).thenReturn(Map.of(
+                firstKey, List.of(Forecast.builder()
+                        .location("Dendermonde")
+                        .createdAt(LocalDateTime.now())
+                        .source("Test")
+                        .date(firstWeekend)
+                        .temperature(Temperature.builder()
+                                .feelsLike(20.0)
+                                .build())
+                        .build()),
+                secondKey, List.of(Forecast.builder()
+                        .location("Dendermonde")
+                        .createdAt(LocalDateTime.now())
+                        .source("Test")
+                        .date(secondWeekend)
+                        .temperature(Temperature.builder()
+                                .feelsLike(0.0) // it's too cold for the activity!
+                                .build())
+                        .build())));
+
+        // act
+        var searchResults = activitySearchService.find(List.of(firstSearch, secondSearch), 10_000L);
+
+        // assert
+        assertThat(searchResults).hasSize(2);
+        assertThat(searchResults.get(0).getActivities()).extracting(FoundActivity::getActivity).containsOnly(activity);
+        assertThat(searchResults.get(1).getActivities()).isEmpty();
+        assertThat(searchResults.get(0).isDegraded()).isFalse();
+
+        verify(activityRepository).findAll();
+        verify(weatherService).findForecasts(Set.of(firstKey, secondKey));
+        verifyNoMoreInteractions(weatherService);
+    }
+
+    @Test
+    void deadlineIsClampedBetweenTheMinimumAndTheDefaultDeadline() {
+        // activity.search.deadline-ms=3000 and activity.search.minimum-deadline-ms=50
+        assertThat(activitySearchService.deadline(null)).isEqualTo(3000);
+        assertThat(activitySearchService.deadline(1000L)).isEqualTo(1000);
+        assertThat(activitySearchService.deadline(Long.MAX_VALUE)).isEqualTo(3000);
+        assertThat(activitySearchService.deadline(0L)).isEqualTo(50);
+        assertThat(activitySearchService.deadline(-5L)).isEqualTo(50);
+    }
+
+}
@@ -0,0 +1,44 @@
+package be.stijnhooft.portal.activity.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LruCacheTest {
+
+    private final LruCache<String, Integer> cache = new LruCache<>(2);
+
+    @Test
+    void getAllReturnsOnlyTheCachedKeys() {
+        cache.putAll(Map.of("a", 1));
+
+        assertThat(cache.getAll(List.of("a", "b"))).isEqualTo(Map.of("a", 1));
+    }
+
+    @Test
+    void putAllWhenFullThenOnlyTheLeastRecentlyUsedValueIsEvicted() {
+        cache.putAll(Map.of("a", 1));
+        cache.putAll(Map.of("b", 2));
+        // using "a" makes "b" the least recently used value
+        cache.getAll(List.of("a"));
+
+        cache.putAll(Map.of("c", 3));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getAll(List.of("a", "b", "c"))).isEqualTo(Map.of("a", 1, "c", 3));
+    }
+
+    @Test
+    void putAllWhenMoreValuesThanFitThenTheCacheKeepsItsMaxSize() {
+        for (int i = 0; i < 100; i++) {
+            cache.putAll(Map.of("key" + i, i));
+        }
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getAll(List.of("key98", "key99"))).isEqualTo(Map.of("key98", 98, "key99", 99));
+    }
+
+}
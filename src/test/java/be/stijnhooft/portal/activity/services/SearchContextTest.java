@@ -0,0 +1,140 @@
+package be.stijnhooft.portal.activity.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchContextTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void release() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void withinWhenUnboundedThenTheLookupIsExecutedByTheCaller() {
+        var searchContext = SearchContext.unbounded();
+        var caller = Thread.currentThread();
+
+        var result = searchContext.within(() -> Thread.currentThread() == caller);
+
+        assertTrue(result);
+        assertFalse(searchContext.acceptsUnknown());
+    }
+
+    @Test
+    void withinWhenLookupFinishesInTime() {
+        var searchContext = SearchContext.withDeadline(1000, executor);
+        searchContext.startFilter(1);
+
+        assertEquals("result", searchContext.within(() -> "result"));
+    }
+
+    @Test
+    void withinWhenLookupTakesLongerThanTheShareOfTheFilter() {
+        var searchContext = SearchContext.withDeadline(100, executor);
+        searchContext.startFilter(2);
+
+        long start = System.nanoTime();
+        assertThrows(DeadlineExceededException.class, () -> searchContext.within(this::blockUntilReleased));
+
+        // the filter got half of the deadline
+        assertTrue(System.nanoTime() - start < 100_000_000L);
+    }
+
+    @Test
+    void withinWhenLookupFailsThenTheExceptionOfTheLookupIsThrown() {
+        var searchContext = SearchContext.withDeadline(1000, executor);
+        searchContext.startFilter(1);
+
+        assertThrows(IllegalArgumentException.class, () -> searchContext.within(() -> {
+            throw new IllegalArgumentException();
+        }));
+    }
+
+    @Test
+    void markUnknown() {
+        var searchContext = SearchContext.withDeadline(1000, executor);
+        var ordinals = new BitSet();
+        ordinals.set(2);
+
+        searchContext.markUnknown(SearchContext.WEATHER, new BitSet());
+        searchContext.markUnknown(SearchContext.DISTANCE, ordinals);
+        searchContext.markUnknown(SearchContext.WEATHER, ordinals);
+
+        assertEquals(Set.of(SearchContext.DISTANCE, SearchContext.WEATHER), searchContext.unknownConditionsOf(2));
+        assertEquals(Set.of(), searchContext.unknownConditionsOf(1));
+        assertEquals(Set.of(SearchContext.DISTANCE, SearchContext.WEATHER), searchContext.degradedConditions());
+    }
+
+    @Test
+    void forQuerySharesThePrefetchedResultsButNotTheUnknownConditions() {
+        var batchContext = SearchContext.withDeadline(10_000, executor);
+        batchContext.addPrefetched("key", "value");
+
+        var searchContext = batchContext.forQuery();
+        var ordinals = new BitSet();
+        ordinals.set(2);
+        searchContext.markUnknown(SearchContext.WEATHER, ordinals);
+
+        assertEquals(Optional.of("value"), searchContext.findPrefetched("key"));
+        assertEquals(Optional.empty(), searchContext.findPrefetched("other key"));
+        assertTrue(searchContext.acceptsUnknown());
+        assertEquals(Set.of(SearchContext.WEATHER), searchContext.degradedConditions());
+        assertEquals(Set.of(), batchContext.degradedConditions());
+        assertEquals(Set.of(), batchContext.forQuery().degradedConditions());
+    }
+
+    private String blockUntilReleased() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "too late";
+    }
+
+    @Test
+    void keepIfUnknownAcceptedWhenTheSearchHasADeadlineThenUncheckedActivitiesAreKeptAndMarked() {
+        var searchContext = SearchContext.withDeadline(1000, executor);
+        var result = bitSet(0);
+
+        searchContext.keepIfUnknownAccepted(SearchContext.WEATHER, result, bitSet(1, 2));
+
+        assertEquals(bitSet(0, 1, 2), result);
+        assertEquals(Set.of(SearchContext.WEATHER), searchContext.unknownConditionsOf(2));
+        assertEquals(Set.of(), searchContext.unknownConditionsOf(0));
+    }
+
+    @Test
+    void keepIfUnknownAcceptedWhenTheSearchHasNoDeadlineThenUncheckedActivitiesAreLeftOut() {
+        var searchContext = SearchContext.unbounded();
+        var result = bitSet(0, 1, 2);
+
+        searchContext.keepIfUnknownAccepted(SearchContext.DISTANCE, result, bitSet(1, 2));
+
+        assertEquals(bitSet(0), result);
+        assertEquals(Set.of(), searchContext.degradedConditions());
+    }
+
+    private BitSet bitSet(int... ordinals) {
+        var bitSet = new BitSet();
+        for (int ordinal : ordinals) {
+            bitSet.set(ordinal);
+        }
+        return bitSet;
+    }
+
+}
@@ -0,0 +1,108 @@
+package be.stijnhooft.portal.activity.services;
+
+import be.stijnhooft.portal.activity.domain.Activity;
+import be.stijnhooft.portal.activity.domain.WeekendSuggestion;
+import be.stijnhooft.portal.activity.messaging.ActivitiesChangedEvent;
+import be.stijnhooft.portal.activity.repositories.WeekendSuggestionRepository;
+import be.stijnhooft.portal.activity.searchparameters.LocationSearchParameter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WeekendSuggestionServiceTest {
+
+    private static final String LOCATION = "België";
+    private static final String OTHER_LOCATION = "Nederland";
+
+    private ActivitySearchService activitySearchService;
+    private WeekendSuggestionRepository weekendSuggestionRepository;
+    private WeekendSuggestionService weekendSuggestionService;
+
+    private final Activity activity = Activity.builder().id("1").build();
+    private final Activity otherActivity = Activity.builder().id("2").build();
+
+    @BeforeEach
+    void init() {
+        activitySearchService = mock(ActivitySearchService.class);
+        weekendSuggestionRepository = mock(WeekendSuggestionRepository.class);
+        weekendSuggestionService = new WeekendSuggestionService(List.of(LOCATION, OTHER_LOCATION), 20, 2,
+                activitySearchService, weekendSuggestionRepository);
+
+        when(activitySearchService.find(anyCollection())).thenReturn(List.of(activity, otherActivity));
+        when(activitySearchService.find(anyCollection(), eq(List.of(LocationSearchParameter.create(LOCATION, 20).orElseThrow()))))
+                .thenReturn(List.of(activity));
+        when(activitySearchService.find(anyCollection(), eq(List.of(LocationSearchParameter.create(OTHER_LOCATION, 20).orElseThrow()))))
+                .thenReturn(List.of(otherActivity));
+        when(weekendSuggestionRepository.saveIfNewer(any())).thenReturn(true);
+    }
+
+    @AfterEach
+    void destroy() {
+        weekendSuggestionService.destroy();
+    }
+
+    @Test
+    void refreshStoresTheSuggestionsOfEveryLocation() {
+        var suggestions = weekendSuggestionService.refresh();
+
+        assertThat(suggestions.get(LOCATION)).containsExactly(activity);
+        assertThat(suggestions.get(OTHER_LOCATION)).containsExactly(otherActivity);
+
+        var captor = ArgumentCaptor.forClass(WeekendSuggestion.class);
+        verify(weekendSuggestionRepository, times(2)).saveIfNewer(captor.capture());
+        assertThat(captor.getAllValues())
+                .extracting(WeekendSuggestion::getLocation)
+                .containsExactly(LOCATION, OTHER_LOCATION);
+        assertThat(captor.getAllValues()).allSatisfy(weekendSuggestion -> {
+            assertThat(weekendSuggestion.getComputedAt()).isNotNull();
+            assertThat(weekendSuggestion.getLocationRadius()).isEqualTo(20);
+        });
+    }
+
+    @Test
+    void refreshWhenAMoreRecentSuggestionHasBeenStoredThenTheOtherLocationsAreStillStored() {
+        when(weekendSuggestionRepository.saveIfNewer(argThat(suggestion -> suggestion != null && LOCATION.equals(suggestion.getLocation()))))
+                .thenReturn(false);
+
+        var suggestions = weekendSuggestionService.refresh();
+
+        assertThat(suggestions).containsOnlyKeys(LOCATION, OTHER_LOCATION);
+        verify(weekendSuggestionRepository, times(2)).saveIfNewer(any());
+    }
+
+    @Test
+    void refreshIfStaleWhenNoActivitiesHaveChangedThenNothingIsRefreshed() {
+        weekendSuggestionService.refreshIfStale();
+
+        verifyNoInteractions(activitySearchService, weekendSuggestionRepository);
+    }
+
+    @Test
+    void refreshIfStaleWhenActivitiesHaveChangedThenTheSuggestionsAreRefreshedOnce() {
+        weekendSuggestionService.onActivitiesChanged(new ActivitiesChangedEvent(List.of("1")));
+        weekendSuggestionService.onActivitiesChanged(new ActivitiesChangedEvent(List.of("2")));
+
+        weekendSuggestionService.refreshIfStale();
+        weekendSuggestionService.refreshIfStale();
+
+        verify(weekendSuggestionRepository, times(2)).saveIfNewer(any());
+    }
+
+    @Test
+    void refreshIfStaleWhenTheScheduledRefreshAlreadyRanThenNothingIsRefreshed() {
+        weekendSuggestionService.onActivitiesChanged(new ActivitiesChangedEvent(List.of("1")));
+        weekendSuggestionService.refresh();
+
+        weekendSuggestionService.refreshIfStale();
+
+        verify(weekendSuggestionRepository, times(2)).saveIfNewer(any());
+    }
+
+}
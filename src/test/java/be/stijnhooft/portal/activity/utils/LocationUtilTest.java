@@ -0,0 +1,30 @@
+package be.stijnhooft.portal.activity.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocationUtilTest {
+
+    @Test
+    void normalizeRemovesAccentsAndCase() {
+        assertThat(LocationUtil.normalize("België")).isEqualTo("belgie");
+        assertThat(LocationUtil.normalize("LIÈGE")).isEqualTo("liege");
+    }
+
+    @Test
+    void normalizeTrimsAndCollapsesWhitespace() {
+        assertThat(LocationUtil.normalize("  Sint-Martens   Latem ")).isEqualTo("sint-martens latem");
+    }
+
+    @Test
+    void normalizeAlignsSeparators() {
+        assertThat(LocationUtil.normalize("Ghent ,Oost-Vlaanderen,Belgium")).isEqualTo("ghent, oost-vlaanderen, belgium");
+    }
+
+    @Test
+    void normalizeWhenNull() {
+        assertThat(LocationUtil.normalize(null)).isEmpty();
+    }
+
+}